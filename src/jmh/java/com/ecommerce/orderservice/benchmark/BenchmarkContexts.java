@@ -0,0 +1,48 @@
+package com.ecommerce.orderservice.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.ecommerce.orderservice.OrderServiceApplication;
+
+/**
+ * Starts the application for benchmarks that need the persistence layer, on a
+ * random port and a private in-memory H2 database unless overridden.
+ */
+public final class BenchmarkContexts {
+
+	private static final String[] DEFAULT_PROPERTIES = { "server.port=0",
+			"spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1", "spring.jpa.hibernate.ddl-auto=create-drop",
+			"spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=WARN",
+			"logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN", "spring.zipkin.enabled=false" };
+
+	private static final String[] PROFILE_PROPERTIES = { "server.port=0", "spring.jpa.hibernate.ddl-auto=create-drop",
+			"spring.zipkin.enabled=false" };
+
+	private BenchmarkContexts() {
+	}
+
+	public static ConfigurableApplicationContext start(String... properties) {
+		List<String> allProperties = new ArrayList<>(Arrays.asList(DEFAULT_PROPERTIES));
+		allProperties.addAll(Arrays.asList(properties));
+
+		return new SpringApplicationBuilder(OrderServiceApplication.class)
+				.properties(allProperties.toArray(new String[0])).run();
+	}
+
+	/**
+	 * Starts the application with the settings of the given profile, including its
+	 * datasource and logging, changing only the port and the schema handling.
+	 */
+	public static ConfigurableApplicationContext startProfile(String profile, String... properties) {
+		List<String> allProperties = new ArrayList<>(Arrays.asList(PROFILE_PROPERTIES));
+		allProperties.addAll(Arrays.asList(properties));
+
+		return new SpringApplicationBuilder(OrderServiceApplication.class).profiles(profile)
+				.properties(allProperties.toArray(new String[0])).run();
+	}
+}
@@ -0,0 +1,80 @@
+package com.ecommerce.orderservice.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecommerce.orderservice.entity.Item;
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.repository.OrderRepository;
+
+/**
+ * Orders of a given size shared by the benchmarks.
+ */
+public final class BenchmarkFixtures {
+
+	public static final int SEED_USERS = 10000;
+
+	public static final LocalDate SEED_START_DATE = LocalDate.of(2023, 1, 1);
+
+	private static final int SEED_CHUNK = 1000;
+
+	private BenchmarkFixtures() {
+	}
+
+	public static Order order(int itemCount) {
+		List<Item> items = new ArrayList<>(itemCount);
+		for (long i = 1; i <= itemCount; i++)
+			items.add(new Item(i, 2, new BigDecimal("200.00"), i, i));
+
+		return new Order(1L, LocalDate.of(2023, 10, 5), OrderStatus.PROCESSING, new BigDecimal("450.00"), items, 1L);
+	}
+
+	/**
+	 * A new, unsaved order whose items reference products 1..itemCount.
+	 */
+	public static OrderDto newOrderDto(int itemCount) {
+		List<ItemDto> items = new ArrayList<>(itemCount);
+		for (long i = 1; i <= itemCount; i++)
+			items.add(new ItemDto(null, 2, new BigDecimal("200.00"), i, null));
+
+		return new OrderDto(null, LocalDate.of(2023, 10, 5), OrderStatus.PROCESSING, new BigDecimal("450.00"), items,
+				1L);
+	}
+
+	/**
+	 * Stores orders spread over {@link #SEED_USERS} users, every status and a year
+	 * of order dates, committing a thousand orders at a time.
+	 */
+	public static void seedOrders(ConfigurableApplicationContext context, int count, int itemCount) {
+		OrderRepository orderRepository = context.getBean(OrderRepository.class);
+		OrderMapper orderMapper = context.getBean(OrderMapper.class);
+		TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+		OrderStatus[] statuses = OrderStatus.values();
+
+		for (int from = 0; from < count; from += SEED_CHUNK) {
+			int first = from;
+			int last = Math.min(from + SEED_CHUNK, count);
+
+			transactionTemplate.executeWithoutResult(status -> {
+				List<Order> orders = new ArrayList<>(last - first);
+				for (int i = first; i < last; i++) {
+					OrderDto order = newOrderDto(itemCount);
+					order.setUserId((long) (i % SEED_USERS) + 1);
+					order.setStatus(statuses[i % statuses.length]);
+					order.setOrderedDate(SEED_START_DATE.plusDays(i % 365));
+					orders.add(orderMapper.toEntity(order));
+				}
+				orderRepository.saveAll(orders);
+			});
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.ecommerce.orderservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.mapper.ItemMapper;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.model.OrderDto;
+
+/**
+ * Compares the hand written order mappers with the reflective ModelMapper they
+ * replaced. The jmh profile runs it with -prof gc, which reports the
+ * allocation rate of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+	@Param({ "1", "20", "200" })
+	private int itemCount;
+
+	private ModelMapper modelMapper;
+
+	private OrderMapper orderMapper;
+
+	private Order order;
+
+	private OrderDto orderDto;
+
+	@Setup
+	public void setUp() {
+		modelMapper = new ModelMapper();
+		orderMapper = new OrderMapper(new ItemMapper());
+
+		order = BenchmarkFixtures.order(itemCount);
+		orderDto = orderMapper.toDto(order);
+	}
+
+	@Benchmark
+	public OrderDto modelMapperToDto() {
+		return modelMapper.map(order, OrderDto.class);
+	}
+
+	@Benchmark
+	public OrderDto orderMapperToDto() {
+		return orderMapper.toDto(order);
+	}
+
+	@Benchmark
+	public Order modelMapperToEntity() {
+		return modelMapper.map(orderDto, Order.class);
+	}
+
+	@Benchmark
+	public Order orderMapperToEntity() {
+		return orderMapper.toEntity(orderDto);
+	}
+}
@@ -0,0 +1,69 @@
+package com.ecommerce.orderservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.repository.OrderRepository;
+
+/**
+ * Saving orders with their items under different id optimizers and JDBC batch
+ * sizes. A batch size of 1 sends every insert on its own, as identity ids did;
+ * {@link RepositoryBenchmark#save()} on a tree from before the switch to
+ * sequences gives the identity numbers themselves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderSaveBenchmark {
+
+	@Param({ "20", "200" })
+	private int itemCount;
+
+	@Param({ "1", "50" })
+	private int batchSize;
+
+	@Param({ "pooled", "pooled-lo" })
+	private String optimizer;
+
+	private ConfigurableApplicationContext context;
+
+	private OrderRepository orderRepository;
+
+	private OrderMapper orderMapper;
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkContexts.start("spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+				"spring.jpa.properties.hibernate.id.optimizer.pooled.preferred=" + optimizer);
+		orderRepository = context.getBean(OrderRepository.class);
+		orderMapper = context.getBean(OrderMapper.class);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Order save() {
+		return orderRepository.save(orderMapper.toEntity(BenchmarkFixtures.newOrderDto(itemCount)));
+	}
+}
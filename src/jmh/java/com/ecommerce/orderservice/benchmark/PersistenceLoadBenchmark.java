@@ -0,0 +1,132 @@
+package com.ecommerce.orderservice.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.FileSystemUtils;
+
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.model.OrderFilter;
+import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.model.OrderSummaryPageDto;
+import com.ecommerce.orderservice.repository.OrderRepository;
+import com.ecommerce.orderservice.service.OrderService;
+
+/**
+ * The same order workload against every persistence backend: saves, loads
+ * with items, and the keyset pages behind per-user history, status dashboards
+ * and date-range reports. The query plans of each backend are printed once the
+ * data is seeded. The large seed shows whether the listing queries stay on
+ * their indexes at a million orders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistenceLoadBenchmark {
+
+	private static final int PAGE_SIZE = 50;
+
+	private static final int SEED_ITEMS = 2;
+
+	@Param({ "h2mem", "h2file", "pg-embedded" })
+	private String backend;
+
+	@Param({ "10000", "1000000" })
+	private int seededOrders;
+
+	private Path databaseDirectory;
+
+	private ConfigurableApplicationContext context;
+
+	private OrderRepository orderRepository;
+
+	private OrderMapper orderMapper;
+
+	private OrderService orderService;
+
+	private long firstOrderId;
+
+	@Setup
+	public void setUp() throws IOException {
+		databaseDirectory = Files.createTempDirectory("orderdb-" + backend);
+		context = BenchmarkContexts.startProfile(backend,
+				"order.db.path=" + databaseDirectory.resolve("orderdb").toAbsolutePath(),
+				"order.cache.enabled=false", "spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=WARN",
+				"logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+		orderRepository = context.getBean(OrderRepository.class);
+		orderMapper = context.getBean(OrderMapper.class);
+		orderService = context.getBean(OrderService.class);
+
+		BenchmarkFixtures.seedOrders(context, seededOrders, SEED_ITEMS);
+		firstOrderId = orderRepository.findPageIds(0, null, null, null, null, PageRequest.of(0, 1)).get(0);
+		QueryPlans.print(context, backend);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		context.close();
+		FileSystemUtils.deleteRecursively(databaseDirectory);
+	}
+
+	@Benchmark
+	public Order save() {
+		return orderRepository.save(orderMapper.toEntity(BenchmarkFixtures.newOrderDto(20)));
+	}
+
+	@Benchmark
+	public Order loadWithItems() {
+		long orderId = firstOrderId + ThreadLocalRandom.current().nextInt(seededOrders);
+		return orderRepository.findWithItemsById(orderId).orElse(null);
+	}
+
+	@Benchmark
+	public List<Long> userHistory() {
+		long userId = 1 + ThreadLocalRandom.current().nextInt(BenchmarkFixtures.SEED_USERS);
+		return orderRepository.findPageIds(0, userId, null, null, null, PageRequest.of(0, PAGE_SIZE));
+	}
+
+	@Benchmark
+	public List<Long> statusDashboard() {
+		OrderStatus[] statuses = OrderStatus.values();
+		OrderStatus status = statuses[ThreadLocalRandom.current().nextInt(statuses.length)];
+		return orderRepository.findPageIds(0, null, status, null, null, PageRequest.of(0, PAGE_SIZE));
+	}
+
+	@Benchmark
+	public List<Long> dateRangeReport() {
+		int day = ThreadLocalRandom.current().nextInt(335);
+		return orderRepository.findPageIds(0, null, null, BenchmarkFixtures.SEED_START_DATE.plusDays(day),
+				BenchmarkFixtures.SEED_START_DATE.plusDays(day + 30), PageRequest.of(0, PAGE_SIZE));
+	}
+
+	@Benchmark
+	public OrderSummaryPageDto userSummaryPage() {
+		OrderFilter filter = new OrderFilter();
+		filter.setUserId(1L + ThreadLocalRandom.current().nextInt(BenchmarkFixtures.SEED_USERS));
+		return orderService.getOrderSummaries(filter, null, PAGE_SIZE);
+	}
+}
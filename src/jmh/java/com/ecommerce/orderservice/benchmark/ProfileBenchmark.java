@@ -0,0 +1,87 @@
+package com.ecommerce.orderservice.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.repository.OrderRepository;
+import com.ecommerce.orderservice.service.OrderService;
+
+/**
+ * Order create and read throughput of the default and the production profile,
+ * each against its own H2 file database with the profile's pool, database and
+ * logging settings. The order cache is off so that every read reaches H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ProfileBenchmark {
+
+	@Param({ "default", "prod" })
+	private String profile;
+
+	private Path databaseDirectory;
+
+	private ConfigurableApplicationContext context;
+
+	private OrderRepository orderRepository;
+
+	private OrderService orderService;
+
+	private OrderMapper orderMapper;
+
+	private Long savedOrderId;
+
+	@Setup
+	public void setUp() throws IOException {
+		databaseDirectory = Files.createTempDirectory("orderdb-" + profile);
+		context = BenchmarkContexts.startProfile(profile,
+				"order.db.path=" + databaseDirectory.resolve("orderdb").toAbsolutePath(),
+				"order.cache.enabled=false");
+		orderRepository = context.getBean(OrderRepository.class);
+		orderService = context.getBean(OrderService.class);
+		orderMapper = context.getBean(OrderMapper.class);
+
+		savedOrderId = orderRepository.save(orderMapper.toEntity(BenchmarkFixtures.newOrderDto(20))).getId();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		context.close();
+		FileSystemUtils.deleteRecursively(databaseDirectory);
+	}
+
+	@Benchmark
+	public Order create() {
+		return orderRepository.save(orderMapper.toEntity(BenchmarkFixtures.newOrderDto(20)));
+	}
+
+	@Benchmark
+	public OrderDto read() {
+		return orderService.getOrderById(savedOrderId);
+	}
+}
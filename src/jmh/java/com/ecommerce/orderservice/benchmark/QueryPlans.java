@@ -0,0 +1,40 @@
+package com.ecommerce.orderservice.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Prints the plans the database chooses for the queries behind the listing
+ * endpoints, so that index use can be compared between backends.
+ */
+public final class QueryPlans {
+
+	private static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+	static {
+		QUERIES.put("user history", "select o.id from orders o where o.id > 0 and o.user_id = 42 order by o.id");
+		QUERIES.put("status dashboard", "select o.id from orders o where o.id > 0 and o.status = 'PENDING' order by o.id");
+		QUERIES.put("date range report", "select o.id from orders o where o.id > 0 "
+				+ "and o.ordered_date >= date '2023-03-01' and o.ordered_date <= date '2023-03-31' order by o.id");
+		QUERIES.put("summaries by id", "select o.id, o.status, o.item_count from orders o where o.id in (1, 2, 3)");
+		QUERIES.put("items of an order",
+				"select i.id from orders_items oi join items i on i.id = oi.items_id where oi.orders_id = 42");
+	}
+
+	private QueryPlans() {
+	}
+
+	public static void print(ConfigurableApplicationContext context, String backend) {
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+		QUERIES.forEach((name, sql) -> {
+			List<String> plan = jdbcTemplate.queryForList("explain " + sql, String.class);
+			System.out.println("[" + backend + "] " + name + ":");
+			plan.forEach(line -> System.out.println("    " + line));
+		});
+	}
+}
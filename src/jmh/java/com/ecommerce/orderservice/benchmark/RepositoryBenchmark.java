@@ -0,0 +1,69 @@
+package com.ecommerce.orderservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.repository.OrderRepository;
+
+/**
+ * Saving and loading orders with their items through {@link OrderRepository}
+ * against in-memory H2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+	@Param({ "1", "20", "200" })
+	private int itemCount;
+
+	private ConfigurableApplicationContext context;
+
+	private OrderRepository orderRepository;
+
+	private OrderMapper orderMapper;
+
+	private Long savedOrderId;
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkContexts.start();
+		orderRepository = context.getBean(OrderRepository.class);
+		orderMapper = context.getBean(OrderMapper.class);
+
+		savedOrderId = orderRepository.save(orderMapper.toEntity(BenchmarkFixtures.newOrderDto(itemCount))).getId();
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Order save() {
+		return orderRepository.save(orderMapper.toEntity(BenchmarkFixtures.newOrderDto(itemCount)));
+	}
+
+	@Benchmark
+	public Order load() {
+		return orderRepository.findWithItemsById(savedOrderId).orElseThrow();
+	}
+}
@@ -0,0 +1,82 @@
+package com.ecommerce.orderservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ecommerce.orderservice.model.OrderDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * JSON and XML (de)serialization of {@link OrderDto}, configured the way Spring
+ * Boot configures the response converters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+	@Param({ "1", "10", "100", "500" })
+	private int itemCount;
+
+	private ObjectMapper jsonMapper;
+
+	private XmlMapper xmlMapper;
+
+	private OrderDto orderDto;
+
+	private byte[] json;
+
+	private byte[] xml;
+
+	@Setup
+	public void setUp() throws Exception {
+		jsonMapper = new ObjectMapper();
+		jsonMapper.registerModule(new JavaTimeModule());
+		jsonMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+		xmlMapper = new XmlMapper();
+		xmlMapper.registerModule(new JavaTimeModule());
+		xmlMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+		orderDto = BenchmarkFixtures.newOrderDto(itemCount);
+		json = jsonMapper.writeValueAsBytes(orderDto);
+		xml = xmlMapper.writeValueAsBytes(orderDto);
+	}
+
+	@Benchmark
+	public byte[] writeJson() throws Exception {
+		return jsonMapper.writeValueAsBytes(orderDto);
+	}
+
+	@Benchmark
+	public OrderDto readJson() throws Exception {
+		return jsonMapper.readValue(json, OrderDto.class);
+	}
+
+	@Benchmark
+	public byte[] writeXml() throws Exception {
+		return xmlMapper.writeValueAsBytes(orderDto);
+	}
+
+	@Benchmark
+	public OrderDto readXml() throws Exception {
+		return xmlMapper.readValue(xml, OrderDto.class);
+	}
+}
@@ -0,0 +1,93 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ecommerce.orderservice.benchmark.BenchmarkFixtures;
+import com.ecommerce.orderservice.model.InventoryDto;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.ProductDto;
+
+/**
+ * Cost of {@link OrderServiceImpl#checkProductStockAvailability} itself, with
+ * the downstream proxies replaced by in-process stubs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockCheckBenchmark {
+
+	@Param({ "1", "10", "40", "200" })
+	private int itemCount;
+
+	private OrderServiceImpl orderService;
+
+	private List<ItemDto> items;
+
+	@Setup
+	public void setUp() {
+		orderService = new OrderServiceImpl();
+		ReflectionTestUtils.setField(orderService, "productServiceProxy", new StubProductServiceProxy());
+		ReflectionTestUtils.setField(orderService, "inventoryServiceProxy", new StubInventoryServiceProxy());
+
+		items = BenchmarkFixtures.newOrderDto(itemCount).getItems();
+	}
+
+	@Benchmark
+	public void checkProductStockAvailability() {
+		orderService.checkProductStockAvailability(items);
+	}
+
+	static class StubProductServiceProxy extends ProductServiceProxy {
+
+		@Override
+		public Map<Long, ProductDto> getProductsByIds(Collection<Long> productIds) {
+			Map<Long, ProductDto> products = new HashMap<>();
+			for (Long productId : productIds)
+				products.put(productId, new ProductDto(productId, "P" + productId, "Product " + productId,
+						new BigDecimal("100.00"), null, "Wearables"));
+			return products;
+		}
+	}
+
+	static class StubInventoryServiceProxy extends InventoryServiceProxy {
+
+		@Override
+		public Map<Long, List<InventoryDto>> getInventoryByProductIds(Collection<Long> productIds) {
+			Map<Long, List<InventoryDto>> inventories = new HashMap<>();
+			for (Long productId : productIds)
+				inventories.put(productId, Collections.singletonList(inventory(productId)));
+			return inventories;
+		}
+
+		@Override
+		public InventoryDto getInventoryById(Long inventoryId) {
+			return inventory(inventoryId);
+		}
+
+		private static InventoryDto inventory(Long id) {
+			return new InventoryDto(id, "SKU" + id, id, "Kuber Industries", 1000, new BigDecimal("90.00"));
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.orderservice.config;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the item count of orders stored before the column existed. Runs once
+ * the schema is updated and does nothing when every order already has one.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class ItemCountBackfill {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ItemCountBackfill.class);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@PostConstruct
+	public void backfillItemCounts() {
+		int updated = jdbcTemplate.update("update orders set item_count = (select count(*) from orders_items oi "
+				+ "where oi.orders_id = orders.id) where item_count is null");
+		if (updated > 0)
+			LOGGER.info("Item count filled in for {} existing orders", updated);
+	}
+}
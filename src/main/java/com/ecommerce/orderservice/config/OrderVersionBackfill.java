@@ -0,0 +1,31 @@
+package com.ecommerce.orderservice.config;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives orders stored before the version column existed their first version.
+ * Hibernate cannot lock or update a row whose version is null.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class OrderVersionBackfill {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OrderVersionBackfill.class);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@PostConstruct
+	public void backfillVersions() {
+		int updated = jdbcTemplate.update("update orders set version = 0 where version is null");
+		if (updated > 0)
+			LOGGER.info("Version set for {} existing orders", updated);
+	}
+}
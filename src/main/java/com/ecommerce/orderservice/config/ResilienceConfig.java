@@ -0,0 +1,33 @@
+package com.ecommerce.orderservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.ecommerce.orderservice.resilience.DownstreamGuard;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * One guard per downstream service, shared by its blocking and reactive proxy,
+ * so that a slow inventory service cannot exhaust the capacity of the product
+ * path. Thresholds are set under {@code resilience4j.*} in the properties.
+ */
+@Configuration
+public class ResilienceConfig {
+
+	@Bean
+	public DownstreamGuard productServiceGuard(CircuitBreakerRegistry circuitBreakerRegistry,
+			BulkheadRegistry bulkheadRegistry, MeterRegistry meterRegistry) {
+		return new DownstreamGuard("product-service", circuitBreakerRegistry.circuitBreaker("productService"),
+				bulkheadRegistry.bulkhead("productService"), meterRegistry);
+	}
+
+	@Bean
+	public DownstreamGuard inventoryServiceGuard(CircuitBreakerRegistry circuitBreakerRegistry,
+			BulkheadRegistry bulkheadRegistry, MeterRegistry meterRegistry) {
+		return new DownstreamGuard("inventory-service", circuitBreakerRegistry.circuitBreaker("inventoryService"),
+				bulkheadRegistry.bulkhead("inventoryService"), meterRegistry);
+	}
+}
@@ -0,0 +1,59 @@
+package com.ecommerce.orderservice.config;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the id sequences past the ids already stored. Databases created while
+ * ids were identity columns get the sequences from the schema update starting
+ * at 1, which would otherwise hand out ids that are taken.
+ *
+ * The pooled optimizer hands out the block of ids below the sequence value and
+ * pooled-lo the block above it, so the sequence is kept a whole block ahead of
+ * the highest id. That also keeps ids unique when the optimizer is switched.
+ */
+@Component
+public class SequenceMigration {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SequenceMigration.class);
+
+	private static final int ALLOCATION_SIZE = 50;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@PostConstruct
+	public void alignSequences() {
+		Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices()
+				.getDialect();
+
+		alignSequence(dialect, "orders", "orders_seq");
+		alignSequence(dialect, "items", "items_seq");
+		alignSequence(dialect, "outbox", "outbox_seq");
+	}
+
+	private void alignSequence(Dialect dialect, String table, String sequence) {
+		Long maxId = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+		if (maxId == null)
+			return;
+
+		Long nextValue = jdbcTemplate.queryForObject(dialect.getSequenceNextValString(sequence), Long.class);
+		if (nextValue != null && nextValue > maxId + ALLOCATION_SIZE)
+			return;
+
+		long restartWith = maxId + ALLOCATION_SIZE + 1;
+		jdbcTemplate.execute("alter sequence " + sequence + " restart with " + restartWith);
+		LOGGER.info("Sequence {} restarted at {}, past the existing ids of {}", sequence, restartWith, table);
+	}
+}
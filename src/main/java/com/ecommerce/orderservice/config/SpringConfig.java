@@ -1,20 +1,183 @@
 package com.ecommerce.orderservice.config;
 
-import org.modelmapper.ModelMapper;
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.TraceContext;
+import org.springframework.cloud.sleuth.Tracer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.ecommerce.orderservice.resilience.RequestDeadline;
+
+import io.netty.channel.ChannelOption;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class SpringConfig {
 
+	public static final String TRACE_HEADER = "TRACE";
+
+	@Value("${proxy.http.max-connections:200}")
+	private int maxConnections;
+
+	@Value("${proxy.http.max-connections-per-host:100}")
+	private int maxConnectionsPerHost;
+
+	@Value("${proxy.http.connect-timeout-ms:2000}")
+	private int connectTimeout;
+
+	@Value("${proxy.http.read-timeout-ms:5000}")
+	private int readTimeout;
+
+	@Value("${proxy.http.pool-acquire-timeout-ms:1000}")
+	private int poolAcquireTimeout;
+
+	@Value("${proxy.http.idle-eviction-ms:30000}")
+	private long idleEviction;
+
+	@Value("${proxy.http.validate-after-inactivity-ms:2000}")
+	private int validateAfterInactivity;
+
+	@Value("${proxy.executor.pool-size:32}")
+	private int proxyPoolSize;
+
+	@Value("${proxy.executor.queue-capacity:500}")
+	private int proxyQueueCapacity;
+
+	@Value("${order.async.workers:8}")
+	private int orderWorkers;
+
+	@Value("${order.async.queue-capacity:1000}")
+	private int orderQueueCapacity;
+
+	@Bean
+	public PoolingHttpClientConnectionManager proxyConnectionManager() {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+		connectionManager.setValidateAfterInactivity(validateAfterInactivity);
+		return connectionManager;
+	}
+
+	@Bean
+	public CloseableHttpClient proxyHttpClient(PoolingHttpClientConnectionManager proxyConnectionManager) {
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectTimeout)
+				.setSocketTimeout(readTimeout).setConnectionRequestTimeout(poolAcquireTimeout).build();
+
+		return HttpClients.custom().setConnectionManager(proxyConnectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE).evictExpiredConnections()
+				.evictIdleConnections(idleEviction, TimeUnit.MILLISECONDS).build();
+	}
+
+	/**
+	 * Shared by the product and inventory proxies. The request factory is set once
+	 * here so that concurrent requests reuse pooled keep-alive connections instead
+	 * of mutating the template per call.
+	 */
+	@Bean
+	public RestTemplate restTemplate(CloseableHttpClient proxyHttpClient, ObjectProvider<Tracer> tracer) {
+		RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(proxyHttpClient));
+
+		// Standard trace headers are added by Sleuth, the trace id is also sent in
+		// the header the downstream services log
+		restTemplate.getInterceptors().add((request, body, execution) -> {
+			Tracer currentTracer = tracer.getIfAvailable();
+			Span span = (currentTracer == null) ? null : currentTracer.currentSpan();
+			if (span != null)
+				request.getHeaders().set(TRACE_HEADER, span.context().traceId());
+			return execution.execute(request, body);
+		});
+
+		// Tell the downstream service how long the caller is still willing to wait
+		restTemplate.getInterceptors().add((request, body, execution) -> {
+			long remaining = RequestDeadline.remainingMillis();
+			if (remaining != Long.MAX_VALUE)
+				request.getHeaders().set(RequestDeadline.HEADER, String.valueOf(Math.max(0, remaining)));
+			return execution.execute(request, body);
+		});
+		return restTemplate;
+	}
+
+	/**
+	 * Non-blocking client for the reactive proxies. It shares the limits and
+	 * timeouts of the blocking client, but waits for responses on the Netty event
+	 * loop rather than on a request thread.
+	 */
+	@Bean
+	public WebClient proxyWebClient(WebClient.Builder webClientBuilder) {
+		ConnectionProvider connectionProvider = ConnectionProvider.builder("proxy").maxConnections(maxConnections)
+				.pendingAcquireTimeout(Duration.ofMillis(poolAcquireTimeout)).maxIdleTime(Duration.ofMillis(idleEviction))
+				.evictInBackground(Duration.ofMillis(idleEviction)).build();
+
+		HttpClient httpClient = HttpClient.create(connectionProvider)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout)
+				.responseTimeout(Duration.ofMillis(readTimeout));
+
+		return webClientBuilder.clientConnector(new ReactorClientHttpConnector(httpClient))
+				.filter((request, next) -> Mono.deferContextual(context -> {
+					TraceContext traceContext = context.getOrDefault(TraceContext.class, null);
+					if (traceContext == null)
+						return next.exchange(request);
+					return next.exchange(
+							ClientRequest.from(request).header(TRACE_HEADER, traceContext.traceId()).build());
+				}))
+				.filter((request, next) -> Mono.deferContextual(context -> {
+					Long deadline = context.<Long>getOrDefault(RequestDeadline.CONTEXT_KEY, null);
+					if (deadline == null)
+						return next.exchange(request);
+
+					long remaining = Math.max(0, RequestDeadline.remainingMillis(deadline));
+					return next.exchange(
+							ClientRequest.from(request).header(RequestDeadline.HEADER, String.valueOf(remaining)).build());
+				})).build();
+	}
+
+	/**
+	 * Bounded pool used to fan out downstream calls. When the queue is full the
+	 * caller runs the task itself, which throttles the submitting request.
+	 */
 	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
+	public ThreadPoolTaskExecutor proxyTaskExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(proxyPoolSize);
+		executor.setMaxPoolSize(proxyPoolSize);
+		executor.setQueueCapacity(proxyQueueCapacity);
+		executor.setThreadNamePrefix("proxy-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.setTaskDecorator(RequestDeadline::wrap);
+		return executor;
 	}
 
+	/**
+	 * Workers of the asynchronous order intake. Submissions are bounded by the
+	 * intake itself, so a rejection here only means the pool is shutting down.
+	 */
 	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
+	public ThreadPoolTaskExecutor orderTaskExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(orderWorkers);
+		executor.setMaxPoolSize(orderWorkers);
+		executor.setQueueCapacity(orderQueueCapacity);
+		executor.setThreadNamePrefix("order-");
+		return executor;
 	}
 }
@@ -1,8 +1,15 @@
 package com.ecommerce.orderservice.config;
 
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
 
 import springfox.bean.validators.configuration.BeanValidatorPluginsConfiguration;
 import springfox.documentation.builders.ApiInfoBuilder;
@@ -12,6 +19,7 @@ import springfox.documentation.service.ApiInfo;
 import springfox.documentation.service.Contact;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.spring.web.plugins.WebMvcRequestHandlerProvider;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @EnableSwagger2
@@ -26,6 +34,37 @@ public class SwaggerConfig {
 				.build().apiInfo(apiInfoMetaData());
 	}
 
+	/**
+	 * Springfox 3 reads the ant patterns of every request mapping, but since Spring
+	 * Boot 2.6 the actuator endpoints are mapped with path patterns and have none.
+	 * Those handler mappings are left out of the documentation, otherwise the
+	 * context fails to start.
+	 */
+	@Bean
+	public static BeanPostProcessor springfoxHandlerProviderBeanPostProcessor() {
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof WebMvcRequestHandlerProvider) {
+					List<RequestMappingInfoHandlerMapping> handlerMappings = handlerMappingsOf(bean);
+					List<RequestMappingInfoHandlerMapping> antMappings = handlerMappings.stream()
+							.filter(mapping -> mapping.getPatternParser() == null).collect(Collectors.toList());
+					handlerMappings.clear();
+					handlerMappings.addAll(antMappings);
+				}
+				return bean;
+			}
+
+			@SuppressWarnings("unchecked")
+			private List<RequestMappingInfoHandlerMapping> handlerMappingsOf(Object bean) {
+				Field field = ReflectionUtils.findField(bean.getClass(), "handlerMappings");
+				ReflectionUtils.makeAccessible(field);
+				return (List<RequestMappingInfoHandlerMapping>) ReflectionUtils.getField(field, bean);
+			}
+		};
+	}
+
 	private ApiInfo apiInfoMetaData() {
 
 		return new ApiInfoBuilder().title("Order API Documentation")
@@ -0,0 +1,42 @@
+package com.ecommerce.orderservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Async request handling, used by streamed responses such as the order export.
+ * Without an executor of its own Spring MVC starts a new thread for every such
+ * request. The timeout is set by spring.mvc.async.request-timeout.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+	@Value("${mvc.async.workers:4}")
+	private int asyncWorkers;
+
+	@Value("${mvc.async.queue-capacity:16}")
+	private int asyncQueueCapacity;
+
+	/**
+	 * Bounded pool for async responses. A request that finds the queue full is
+	 * rejected rather than starting another long running stream.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor mvcAsyncTaskExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(asyncWorkers);
+		executor.setMaxPoolSize(asyncWorkers);
+		executor.setQueueCapacity(asyncQueueCapacity);
+		executor.setThreadNamePrefix("mvc-async-");
+		return executor;
+	}
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setTaskExecutor(mvcAsyncTaskExecutor());
+	}
+}
@@ -1,9 +1,18 @@
 package com.ecommerce.orderservice.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,39 +21,124 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.ecommerce.orderservice.service.OrderService;
+import com.ecommerce.orderservice.service.ReactiveOrderService;
 import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.model.ApiErrorResponse;
+import com.ecommerce.orderservice.model.BulkOrderResponseDto;
 import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.OrderFilter;
+import com.ecommerce.orderservice.model.OrderPageDto;
+import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.model.OrderStatusDto;
+import com.ecommerce.orderservice.model.OrderSummaryDto;
+import com.ecommerce.orderservice.model.OrderSummaryPageDto;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import reactor.core.publisher.Mono;
+import springfox.documentation.annotations.ApiIgnore;
 
 @RestController
 @Api(produces = "application/json", value = "Operations pertaining to manage orders in e-commerce application")
 @RequestMapping("/api/orders")
 public class OrderController {
 
+	private static final String NDJSON_VALUE = "application/x-ndjson";
+
+	private static final int MAX_PAGE_SIZE = 500;
+
+	private static final String RETRY_AFTER_SECONDS = "1";
+
 	@Autowired
 	OrderService orderService;
 
+	@Autowired
+	ReactiveOrderService reactiveOrderService;
+
+	/**
+	 * Lists a page of orders ordered by id, the next page starts after the id of
+	 * the last order. Use /export to read every order.
+	 */
 	@GetMapping
-	@ApiOperation(value = "View all orders", response = ResponseEntity.class)
-	@ApiResponses(value = { @ApiResponse(code = 200, message = "Successfully retrieved all orders"),
+	@ApiOperation(value = "View a page of orders, optionally filtered", response = ResponseEntity.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "Successfully retrieved the orders"),
+			@ApiResponse(code = 204, message = "Orders list is empty"),
+			@ApiResponse(code = 500, message = "Application failed to process the request") })
+	private ResponseEntity<List<OrderDto>> getAllOrders(OrderFilter filter,
+			@RequestParam(value = "afterId", required = false) Long afterId,
+			@RequestParam(value = "limit", defaultValue = "50") int limit) {
+
+		checkPageSize(limit);
+		List<OrderDto> orders = orderService.getOrders(filter, afterId, limit).getOrders();
+		if (orders.isEmpty())
+			throw new EcommerceException("no-content", "Orders list is empty", HttpStatus.NO_CONTENT);
+
+		return new ResponseEntity<>(orders, HttpStatus.OK);
+	}
+
+	/**
+	 * Lists a page of orders without their items, the next page starts after the
+	 * id of the last order.
+	 */
+	@GetMapping("/summaries")
+	@ApiOperation(value = "View a page of orders without their items", response = ResponseEntity.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "Successfully retrieved the order summaries"),
 			@ApiResponse(code = 204, message = "Orders list is empty"),
 			@ApiResponse(code = 500, message = "Application failed to process the request") })
-	private ResponseEntity<List<OrderDto>> getAllOrders() {
+	private ResponseEntity<List<OrderSummaryDto>> getOrderSummaries(
+			@RequestParam(value = "afterId", required = false) Long afterId,
+			@RequestParam(value = "limit", defaultValue = "50") int limit) {
 
-		List<OrderDto> orders = orderService.getAllOrders();
+		checkPageSize(limit);
+		List<OrderSummaryDto> orders = orderService.getOrderSummaries(afterId, limit);
 		if (orders.isEmpty())
 			throw new EcommerceException("no-content", "Orders list is empty", HttpStatus.NO_CONTENT);
 
 		return new ResponseEntity<>(orders, HttpStatus.OK);
 	}
 
+	@GetMapping("/summaries/page")
+	@ApiOperation(value = "View a page of orders without their items, optionally filtered", response = ResponseEntity.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "Successfully retrieved the page of order summaries"),
+			@ApiResponse(code = 500, message = "Application failed to process the request") })
+	private ResponseEntity<OrderSummaryPageDto> getOrderSummaryPage(OrderFilter filter,
+			@RequestParam(value = "afterId", required = false) Long afterId,
+			@RequestParam(value = "limit", defaultValue = "50") int limit) {
+
+		checkPageSize(limit);
+		return new ResponseEntity<>(orderService.getOrderSummaries(filter, afterId, limit), HttpStatus.OK);
+	}
+
+	@GetMapping("/page")
+	@ApiOperation(value = "View a page of orders, optionally filtered", response = ResponseEntity.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "Successfully retrieved the page of orders"),
+			@ApiResponse(code = 500, message = "Application failed to process the request") })
+	private ResponseEntity<OrderPageDto> getOrderPage(OrderFilter filter,
+			@RequestParam(value = "afterId", required = false) Long afterId,
+			@RequestParam(value = "limit", defaultValue = "50") int limit) {
+
+		checkPageSize(limit);
+		return new ResponseEntity<>(orderService.getOrders(filter, afterId, limit), HttpStatus.OK);
+	}
+
+	@GetMapping(value = "/export", produces = NDJSON_VALUE)
+	@ApiOperation(value = "Export orders as newline delimited JSON, optionally filtered", response = ResponseEntity.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "Successfully streamed the orders"),
+			@ApiResponse(code = 500, message = "Application failed to process the request") })
+	private ResponseEntity<StreamingResponseBody> exportOrders(OrderFilter filter) {
+
+		StreamingResponseBody body = outputStream -> orderService.exportOrders(filter, outputStream);
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
+	}
+
 	@GetMapping("/{id}")
 	@ApiOperation(value = "Retrieve specific order with the specified order id", response = ResponseEntity.class)
 	@ApiResponses(value = { @ApiResponse(code = 200, message = "Successfully retrieved order with the order id"),
@@ -60,6 +154,22 @@ public class OrderController {
 					HttpStatus.NOT_FOUND);
 	}
 
+	/**
+	 * Serves JSON clients from the cached serialized form of the order, other
+	 * representations are negotiated by {@link #getOrderById(long)}.
+	 */
+	@ApiIgnore
+	@GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+	private ResponseEntity<byte[]> getOrderJsonById(@PathVariable("id") long id) {
+
+		byte[] order = orderService.getOrderJsonById(id);
+		if (order != null)
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(order);
+		else
+			throw new EcommerceException("order-not-found", String.format("Order with id=%d not found", id),
+					HttpStatus.NOT_FOUND);
+	}
+
 	@PostMapping
 	@ApiOperation(value = "Create a new order", response = ResponseEntity.class)
 	@ApiResponses(value = { @ApiResponse(code = 201, message = "Successfully created a order"),
@@ -68,6 +178,65 @@ public class OrderController {
 		return new ResponseEntity<>(orderService.createOrder(order), HttpStatus.CREATED);
 	}
 
+	@PostMapping("/async")
+	@ApiOperation(value = "Submit a new order to be processed in the background", response = ResponseEntity.class)
+	@ApiResponses(value = { @ApiResponse(code = 202, message = "Order accepted, poll the Location for its status"),
+			@ApiResponse(code = 400, message = "Order is not valid"),
+			@ApiResponse(code = 429, message = "Too many orders are waiting, retry later"),
+			@ApiResponse(code = 500, message = "Application failed to process the request") })
+	public ResponseEntity<?> submitOrder(@Valid @RequestBody OrderDto order, HttpServletRequest request) {
+
+		OrderDto pendingOrder = orderService.submitOrder(order);
+
+		// Built here rather than thrown, so that clients get a real 429 status
+		if (pendingOrder == null)
+			return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+					.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).body(new ApiErrorResponse("order-queue-full",
+							"Too many orders are waiting to be processed. Please try again later",
+							HttpStatus.TOO_MANY_REQUESTS.value(), HttpStatus.TOO_MANY_REQUESTS.name(),
+							request.getRequestURI(), request.getMethod(), LocalDateTime.now()));
+
+		URI statusUri = ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/orders/{id}/status")
+				.buildAndExpand(pendingOrder.getId()).toUri();
+		return ResponseEntity.accepted().location(statusUri)
+				.body(new OrderStatusDto(pendingOrder.getId(), pendingOrder.getStatus()));
+	}
+
+	@PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE })
+	@ApiOperation(value = "Create orders from a JSON array or newline delimited JSON", response = ResponseEntity.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "Orders imported, see the result of every record"),
+			@ApiResponse(code = 500, message = "Application failed to process the request") })
+	public ResponseEntity<BulkOrderResponseDto> importOrders(InputStream body) throws IOException {
+		return new ResponseEntity<>(orderService.importOrders(body), HttpStatus.OK);
+	}
+
+	@GetMapping("/{id}/status")
+	@ApiOperation(value = "Retrieve the processing status of an order", response = ResponseEntity.class)
+	@ApiResponses(value = { @ApiResponse(code = 200, message = "Successfully retrieved the order status"),
+			@ApiResponse(code = 404, message = "Order with specified order id not found"),
+			@ApiResponse(code = 500, message = "Application failed to process the request") })
+	private ResponseEntity<OrderStatusDto> getOrderStatus(@PathVariable("id") long id) {
+
+		OrderStatus status = orderService.getOrderStatus(id);
+		if (status == null)
+			throw new EcommerceException("order-not-found", String.format("Order with id=%d not found", id),
+					HttpStatus.NOT_FOUND);
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (status == OrderStatus.PENDING)
+			response.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+		return response.body(new OrderStatusDto(id, status));
+	}
+
+	@PostMapping("/reactive")
+	@ApiOperation(value = "Create a new order without holding a request thread on downstream calls", response = ResponseEntity.class)
+	@ApiResponses(value = { @ApiResponse(code = 201, message = "Successfully created a order"),
+			@ApiResponse(code = 500, message = "Application failed to process the request") })
+	public Mono<ResponseEntity<OrderDto>> createOrderReactive(@RequestBody OrderDto order) {
+		return reactiveOrderService.createOrder(order)
+				.map(createdOrder -> new ResponseEntity<>(createdOrder, HttpStatus.CREATED));
+	}
+
 	@PutMapping("/{id}")
 	@ApiOperation(value = "Update a order information", response = ResponseEntity.class)
 	@ApiResponses(value = { @ApiResponse(code = 200, message = "Successfully updated order information"),
@@ -92,4 +261,10 @@ public class OrderController {
 		orderService.deleteOrder(id);
 		return new ResponseEntity<>("Order deleted successfully", HttpStatus.NO_CONTENT);
 	}
+
+	private static void checkPageSize(int limit) {
+		if (limit < 1 || limit > MAX_PAGE_SIZE)
+			throw new EcommerceException("invalid-page-size",
+					"Page size must be between 1 and " + MAX_PAGE_SIZE + ".", HttpStatus.BAD_REQUEST);
+	}
 }
@@ -12,8 +12,14 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
@@ -27,11 +33,14 @@ import com.ecommerce.orderservice.model.OrderStatus;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "orders")
+@Table(name = "orders", indexes = { @Index(name = "idx_orders_user_id", columnList = "userId, id"),
+		@Index(name = "idx_orders_status", columnList = "status, id"),
+		@Index(name = "idx_orders_ordered_date", columnList = "orderedDate, id") })
 public class Order {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_id_seq")
+	@SequenceGenerator(name = "order_id_seq", sequenceName = "orders_seq", allocationSize = 50)
 	private Long id;
 
 	@NotNull
@@ -45,11 +54,39 @@ public class Order {
 
 	@NotEmpty
 	@ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+	@JoinTable(name = "orders_items", joinColumns = @JoinColumn(name = "orders_id"),
+			inverseJoinColumns = @JoinColumn(name = "items_id"),
+			indexes = { @Index(name = "idx_orders_items_orders_id", columnList = "orders_id"),
+					@Index(name = "idx_orders_items_items_id", columnList = "items_id") })
 	private List<Item> items;
 
 	@NotNull
 	private Long userId;
 
+	/**
+	 * Number of items, kept on the order so that listings need not read the
+	 * items. Set on insert; writers that change the items call
+	 * {@link #updateItemCount()}.
+	 */
+	private Integer itemCount;
+
+	/**
+	 * Optimistic lock, so that concurrent writers of one order cannot overwrite
+	 * each other.
+	 */
+	@Version
+	private Long version;
+
+	public Order(Long id, LocalDate orderedDate, OrderStatus status, BigDecimal total, List<Item> items,
+			Long userId) {
+		this(id, orderedDate, status, total, items, userId, (items == null) ? 0 : items.size(), null);
+	}
+
+	@PrePersist
+	public void updateItemCount() {
+		this.itemCount = (items == null) ? 0 : items.size();
+	}
+
 	public Order updateWith(Order order) {
 		return new Order(this.id, order.orderedDate, order.status, order.total, order.items, order.userId);
 	}
@@ -0,0 +1,74 @@
+package com.ecommerce.orderservice.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+import com.ecommerce.orderservice.model.OutboxStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stock reservation command for one item of a pending order. It is written in
+ * the same transaction as the order and sent to the inventory service later by
+ * the saga dispatcher.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "outbox", indexes = { @Index(name = "idx_outbox_status_order_id", columnList = "status, orderId"),
+		@Index(name = "idx_outbox_order_id", columnList = "orderId") })
+public class OutboxEvent {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_id_seq")
+	@SequenceGenerator(name = "outbox_id_seq", sequenceName = "outbox_seq", allocationSize = 50)
+	private Long id;
+
+	@NotNull
+	private Long orderId;
+
+	@NotNull
+	private Long itemId;
+
+	@NotNull
+	private Long productId;
+
+	private Long inventoryId;
+
+	@NotNull
+	private int quantity;
+
+	@Enumerated(EnumType.STRING)
+	@NotNull
+	private OutboxStatus status;
+
+	private int attempts;
+
+	@NotNull
+	private LocalDateTime createdAt;
+
+	/**
+	 * When the dispatcher may retry the reservation, null until it first failed.
+	 */
+	private LocalDateTime nextAttemptAt;
+
+	/**
+	 * When a dispatcher claimed the event, set while it is IN_PROGRESS.
+	 */
+	private LocalDateTime claimedAt;
+
+	private String lastError;
+}
@@ -0,0 +1,53 @@
+package com.ecommerce.orderservice.mapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.orderservice.entity.Item;
+import com.ecommerce.orderservice.model.ItemDto;
+
+/**
+ * Maps between {@link Item} and {@link ItemDto} with plain constructor calls,
+ * avoiding the reflection and type map lookups of a generic mapper.
+ */
+@Component
+public class ItemMapper {
+
+	public ItemDto toDto(Item item) {
+		if (item == null)
+			return null;
+
+		return new ItemDto(item.getId(), item.getQuantity(), item.getSubTotal(), item.getProductId(),
+				item.getInventoryId());
+	}
+
+	public Item toEntity(ItemDto itemDto) {
+		if (itemDto == null)
+			return null;
+
+		return new Item(itemDto.getId(), itemDto.getQuantity(), itemDto.getSubTotal(), itemDto.getProductId(),
+				itemDto.getInventoryId());
+	}
+
+	public List<ItemDto> toDtos(List<Item> items) {
+		if (items == null)
+			return null;
+
+		List<ItemDto> itemDtos = new ArrayList<>(items.size());
+		for (Item item : items)
+			itemDtos.add(toDto(item));
+		return itemDtos;
+	}
+
+	public List<Item> toEntities(List<ItemDto> itemDtos) {
+		if (itemDtos == null)
+			return null;
+
+		List<Item> items = new ArrayList<>(itemDtos.size());
+		for (ItemDto itemDto : itemDtos)
+			items.add(toEntity(itemDto));
+		return items;
+	}
+}
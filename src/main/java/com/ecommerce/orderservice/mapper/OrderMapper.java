@@ -0,0 +1,36 @@
+package com.ecommerce.orderservice.mapper;
+
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.model.OrderDto;
+
+/**
+ * Maps between {@link Order} and {@link OrderDto}, including their items, with
+ * plain constructor calls.
+ */
+@Component
+public class OrderMapper {
+
+	private final ItemMapper itemMapper;
+
+	public OrderMapper(ItemMapper itemMapper) {
+		this.itemMapper = itemMapper;
+	}
+
+	public OrderDto toDto(Order order) {
+		if (order == null)
+			return null;
+
+		return new OrderDto(order.getId(), order.getOrderedDate(), order.getStatus(), order.getTotal(),
+				itemMapper.toDtos(order.getItems()), order.getUserId());
+	}
+
+	public Order toEntity(OrderDto orderDto) {
+		if (orderDto == null)
+			return null;
+
+		return new Order(orderDto.getId(), orderDto.getOrderedDate(), orderDto.getStatus(), orderDto.getTotal(),
+				itemMapper.toEntities(orderDto.getItems()), orderDto.getUserId());
+	}
+}
@@ -0,0 +1,25 @@
+package com.ecommerce.orderservice.model;
+
+import java.util.List;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@ApiModel(description = "Class representing the outcome of a bulk order import in e-commerce application.")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderResponseDto {
+
+	@ApiModelProperty(notes = "Number of orders created.", example = "980")
+	private int accepted;
+
+	@ApiModelProperty(notes = "Number of records rejected.", example = "20")
+	private int rejected;
+
+	@ApiModelProperty(notes = "Outcome of every record, in request order.")
+	private List<BulkOrderResultDto> results;
+}
@@ -0,0 +1,32 @@
+package com.ecommerce.orderservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@ApiModel(description = "Class representing the outcome of one record of a bulk order import in e-commerce application.")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkOrderResultDto {
+
+	@ApiModelProperty(notes = "Position of the record in the request, starting at 0.", example = "0")
+	private int index;
+
+	@ApiModelProperty(notes = "Unique identifier of the created Order, absent when the record was rejected.", example = "1")
+	private Long orderId;
+
+	@ApiModelProperty(notes = "Status of the created Order, absent when the record was rejected.", example = "PENDING")
+	private OrderStatus status;
+
+	@ApiModelProperty(notes = "Error code when the record was rejected.", example = "product-not-available")
+	private String errorCode;
+
+	@ApiModelProperty(notes = "Reason the record was rejected.", example = "Only 3 units of product - id: 5 is/are available.")
+	private String message;
+}
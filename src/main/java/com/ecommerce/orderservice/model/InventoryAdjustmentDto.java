@@ -0,0 +1,27 @@
+package com.ecommerce.orderservice.model;
+
+import javax.validation.constraints.NotNull;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@ApiModel(description = "Class representing a change of stock sent to the inventory service as part of a batch.")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryAdjustmentDto {
+
+	@ApiModelProperty(notes = "Inventory to adjust, any inventory of the product with enough stock when absent.", example = "7")
+	private Long inventoryId;
+
+	@ApiModelProperty(notes = "Unique identifier of the Product.", example = "5", required = true)
+	@NotNull
+	private Long productId;
+
+	@ApiModelProperty(notes = "Units to put back when positive, units to reserve when negative.", example = "-2", required = true)
+	@NotNull
+	private Integer delta;
+}
@@ -0,0 +1,22 @@
+package com.ecommerce.orderservice.model;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@ApiModel(description = "Class representing a stock reservation or release sent to the inventory service.")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryReservationDto {
+
+	@ApiModelProperty(notes = "Number of units to reserve or release.", example = "2", required = true)
+	@NotNull
+	@Positive
+	private Integer quantity;
+}
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
+import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
@@ -35,6 +36,7 @@ public class OrderDto {
 
 	@ApiModelProperty(notes = "Items in the order.", required = true)
 	@NotEmpty
+	@Valid
     private List<ItemDto> items;
 
 	@ApiModelProperty(notes = "Unique identifier of the Customer.", example = "1", required = true)
@@ -0,0 +1,30 @@
+package com.ecommerce.orderservice.model;
+
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderFilter {
+
+	@ApiModelProperty(notes = "Only orders of this Customer.", example = "1")
+	private Long userId;
+
+	@ApiModelProperty(notes = "Only orders with this Status.", example = "DELIVERED")
+	private OrderStatus status;
+
+	@ApiModelProperty(notes = "Only orders placed on or after this date.", example = "2023-10-01")
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+	private LocalDate fromDate;
+
+	@ApiModelProperty(notes = "Only orders placed on or before this date.", example = "2023-10-31")
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+	private LocalDate toDate;
+}
@@ -0,0 +1,22 @@
+package com.ecommerce.orderservice.model;
+
+import java.util.List;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@ApiModel(description = "Class representing a page of orders in e-commerce application.")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageDto {
+
+	@ApiModelProperty(notes = "Orders in the page, ordered by id.")
+	private List<OrderDto> orders;
+
+	@ApiModelProperty(notes = "Cursor to pass as afterId to fetch the next page, absent on the last page.", example = "120")
+	private Long nextCursor;
+}
@@ -1,5 +1,5 @@
 package com.ecommerce.orderservice.model;
 
 public enum OrderStatus {
-	CANCELLED, DELIVERED, INTRANSIT, PAYMENTDUE, PICKUPAVAILABLE, PROCESSING, RETURNED;
+	CANCELLED, DELIVERED, INTRANSIT, PAYMENTDUE, PENDING, PICKUPAVAILABLE, PROCESSING, REJECTED, RETURNED;
 }
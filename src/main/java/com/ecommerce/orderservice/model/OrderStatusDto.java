@@ -0,0 +1,20 @@
+package com.ecommerce.orderservice.model;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@ApiModel(description = "Class representing the processing status of an order in e-commerce application.")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusDto {
+
+	@ApiModelProperty(notes = "Unique identifier of the Order.", example = "1")
+	private Long id;
+
+	@ApiModelProperty(notes = "Status of the Order.", example = "PENDING")
+	private OrderStatus status;
+}
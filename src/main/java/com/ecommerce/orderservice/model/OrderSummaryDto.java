@@ -0,0 +1,35 @@
+package com.ecommerce.orderservice.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@ApiModel(description = "Class representing a order without its items in e-commerce application.")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDto {
+
+	@ApiModelProperty(notes = "Unique identifier of the Order.", example = "1")
+	private Long id;
+
+	@ApiModelProperty(notes = "Order Date.", example = "2023-10-05")
+	private LocalDate orderedDate;
+
+	@ApiModelProperty(notes = "Status of the Order.", example = "DELIVERED")
+	private OrderStatus status;
+
+	@ApiModelProperty(notes = "Total amount of the order.", example = "450.00")
+	private BigDecimal total;
+
+	@ApiModelProperty(notes = "Unique identifier of the Customer.", example = "1")
+	private Long userId;
+
+	@ApiModelProperty(notes = "Number of items in the order.", example = "3")
+	private Integer itemCount;
+}
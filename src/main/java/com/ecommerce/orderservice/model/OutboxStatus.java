@@ -0,0 +1,5 @@
+package com.ecommerce.orderservice.model;
+
+public enum OutboxStatus {
+	PENDING, IN_PROGRESS, SENT, FAILED;
+}
@@ -1,9 +1,41 @@
 package com.ecommerce.orderservice.repository;
 
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.model.OrderSummaryDto;
+
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+	@Query("select o.status from Order o where o.id = :id")
+	Optional<OrderStatus> findStatusById(@Param("id") Long id);
+
+	@EntityGraph(attributePaths = "items")
+	Optional<Order> findWithItemsById(Long id);
+
+	/**
+	 * Keyset page of order summaries after the given id, read in one statement.
+	 */
+	@Query("select new com.ecommerce.orderservice.model.OrderSummaryDto(o.id, o.orderedDate, o.status, o.total, o.userId, "
+			+ "o.itemCount) from Order o where o.id > :afterId order by o.id")
+	List<OrderSummaryDto> findSummariesAfter(@Param("afterId") long afterId, Pageable pageable);
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
+	@Query("select new com.ecommerce.orderservice.model.OrderSummaryDto(o.id, o.orderedDate, o.status, o.total, o.userId, "
+			+ "o.itemCount) from Order o where o.id in :ids order by o.id")
+	List<OrderSummaryDto> findSummariesByIdIn(@Param("ids") List<Long> ids);
 
+	@Query("select distinct o from Order o left join fetch o.items where o.id in :ids order by o.id")
+	@QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+	List<Order> findAllWithItemsByIdIn(@Param("ids") List<Long> ids);
 }
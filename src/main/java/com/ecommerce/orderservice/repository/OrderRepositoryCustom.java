@@ -0,0 +1,26 @@
+package com.ecommerce.orderservice.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
+
+import com.ecommerce.orderservice.model.OrderStatus;
+
+public interface OrderRepositoryCustom {
+
+	/**
+	 * Keyset page of order ids after the given id, so that deep pages cost the same
+	 * as the first one. Filters that are null are left out of the query.
+	 */
+	List<Long> findPageIds(long afterId, Long userId, OrderStatus status, LocalDate fromDate, LocalDate toDate,
+			Pageable pageable);
+
+	/**
+	 * Streams the ids of the matching orders from an open cursor, leaving out the
+	 * filters that are null. Must be consumed inside a transaction and closed
+	 * afterwards.
+	 */
+	Stream<Long> streamIds(Long userId, OrderStatus status, LocalDate fromDate, LocalDate toDate);
+}
@@ -0,0 +1,67 @@
+package com.ecommerce.orderservice.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+import org.springframework.data.domain.Pageable;
+
+import com.ecommerce.orderservice.model.OrderStatus;
+
+/**
+ * Builds the id queries from the filters actually given. A condition such as
+ * {@code :userId is null or o.userId = :userId} keeps the database from using
+ * the index on the column, so absent filters are not part of the statement.
+ */
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+	private static final int STREAM_FETCH_SIZE = 500;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Long> findPageIds(long afterId, Long userId, OrderStatus status, LocalDate fromDate,
+			LocalDate toDate, Pageable pageable) {
+
+		return createIdQuery(afterId, userId, status, fromDate, toDate)
+				.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize()).getResultList();
+	}
+
+	@Override
+	public Stream<Long> streamIds(Long userId, OrderStatus status, LocalDate fromDate, LocalDate toDate) {
+		return createIdQuery(0L, userId, status, fromDate, toDate)
+				.setHint("org.hibernate.fetchSize", STREAM_FETCH_SIZE).getResultStream();
+	}
+
+	private TypedQuery<Long> createIdQuery(long afterId, Long userId, OrderStatus status, LocalDate fromDate,
+			LocalDate toDate) {
+
+		StringBuilder jpql = new StringBuilder("select o.id from Order o where o.id > :afterId");
+		if (userId != null)
+			jpql.append(" and o.userId = :userId");
+		if (status != null)
+			jpql.append(" and o.status = :status");
+		if (fromDate != null)
+			jpql.append(" and o.orderedDate >= :fromDate");
+		if (toDate != null)
+			jpql.append(" and o.orderedDate <= :toDate");
+		jpql.append(" order by o.id");
+
+		TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class).setParameter("afterId",
+				afterId);
+		if (userId != null)
+			query.setParameter("userId", userId);
+		if (status != null)
+			query.setParameter("status", status);
+		if (fromDate != null)
+			query.setParameter("fromDate", fromDate);
+		if (toDate != null)
+			query.setParameter("toDate", toDate);
+		return query;
+	}
+}
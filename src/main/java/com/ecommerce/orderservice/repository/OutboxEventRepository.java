@@ -0,0 +1,48 @@
+package com.ecommerce.orderservice.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.ecommerce.orderservice.entity.OutboxEvent;
+import com.ecommerce.orderservice.model.OutboxStatus;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+	/**
+	 * Oldest orders that still have events in the given status and are not
+	 * waiting out a retry backoff.
+	 */
+	@Query("select e.orderId from OutboxEvent e where e.status = :status"
+			+ " and (e.nextAttemptAt is null or e.nextAttemptAt <= :now) group by e.orderId order by min(e.id)")
+	List<Long> findOrderIdsByStatus(@Param("status") OutboxStatus status, @Param("now") LocalDateTime now,
+			Pageable pageable);
+
+	List<OutboxEvent> findByOrderIdAndStatusOrderById(Long orderId, OutboxStatus status);
+
+	/**
+	 * Moves the due events of an order from pending to in progress. Concurrent
+	 * claims of the same order are serialized by the row locks, and only the first
+	 * one updates any rows.
+	 */
+	@Modifying
+	@Query("update OutboxEvent e set e.status = :inProgress, e.claimedAt = :now where e.orderId = :orderId"
+			+ " and e.status = :pending and (e.nextAttemptAt is null or e.nextAttemptAt <= :now)")
+	int claim(@Param("orderId") Long orderId, @Param("pending") OutboxStatus pending,
+			@Param("inProgress") OutboxStatus inProgress, @Param("now") LocalDateTime now);
+
+	/**
+	 * Returns events claimed before the given time to pending, for claims whose
+	 * dispatcher stopped before recording the outcome.
+	 */
+	@Modifying
+	@Query("update OutboxEvent e set e.status = :pending, e.claimedAt = null where e.status = :inProgress"
+			+ " and e.claimedAt < :claimedBefore")
+	int releaseStaleClaims(@Param("inProgress") OutboxStatus inProgress, @Param("pending") OutboxStatus pending,
+			@Param("claimedBefore") LocalDateTime claimedBefore);
+}
@@ -0,0 +1,105 @@
+package com.ecommerce.orderservice.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.ecommerce.orderservice.exception.EcommerceException;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Circuit breaker and concurrency bulkhead of one downstream service. Every
+ * single attempt goes through the guard, so while the breaker is open or the
+ * bulkhead is full calls fail at once instead of waiting for timeouts. Server
+ * errors count as failures even though the proxies return them as responses.
+ */
+public class DownstreamGuard {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DownstreamGuard.class);
+
+	private final String name;
+
+	private final CircuitBreaker circuitBreaker;
+
+	private final Bulkhead bulkhead;
+
+	public DownstreamGuard(String name, CircuitBreaker circuitBreaker, Bulkhead bulkhead, MeterRegistry meterRegistry) {
+		this.name = name;
+		this.circuitBreaker = circuitBreaker;
+		this.bulkhead = bulkhead;
+
+		circuitBreaker.getEventPublisher().onStateTransition(event -> {
+			LOGGER.warn("Circuit breaker {} : {}", name, event.getStateTransition());
+			meterRegistry.counter("proxy.circuitbreaker.transitions", "name", name, "from",
+					event.getStateTransition().getFromState().name(), "to",
+					event.getStateTransition().getToState().name()).increment();
+		});
+	}
+
+	public <T> ResponseEntity<T> call(Supplier<ResponseEntity<T>> call) {
+		acquirePermissions();
+
+		long start = System.nanoTime();
+		try {
+			ResponseEntity<T> response = call.get();
+			onResponse(response, System.nanoTime() - start);
+			return response;
+		} catch (RuntimeException e) {
+			circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e);
+			throw e;
+		} finally {
+			bulkhead.onComplete();
+		}
+	}
+
+	public <T> Mono<ResponseEntity<T>> call(Mono<ResponseEntity<T>> call) {
+		return Mono.defer(() -> {
+			acquirePermissions();
+
+			long start = System.nanoTime();
+			return call.doOnNext(response -> onResponse(response, System.nanoTime() - start))
+					.doOnError(e -> circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, e))
+					.doOnCancel(circuitBreaker::releasePermission).doFinally(signal -> bulkhead.onComplete());
+		});
+	}
+
+	public CircuitBreaker.State state() {
+		return circuitBreaker.getState();
+	}
+
+	private void acquirePermissions() {
+		try {
+			bulkhead.acquirePermission();
+		} catch (BulkheadFullException e) {
+			throw new EcommerceException(name + "-busy",
+					"Too many concurrent requests to " + name + ". Please try again later",
+					HttpStatus.SERVICE_UNAVAILABLE);
+		}
+
+		try {
+			circuitBreaker.acquirePermission();
+		} catch (CallNotPermittedException e) {
+			bulkhead.onComplete();
+			throw new EcommerceException(name + "-unavailable",
+					name + " is currently unavailable. Please try again later", HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+
+	private void onResponse(ResponseEntity<?> response, long durationNanos) {
+		if (response.getStatusCodeValue() >= 500)
+			circuitBreaker.onError(durationNanos, TimeUnit.NANOSECONDS,
+					new IllegalStateException(name + " responded with status " + response.getStatusCodeValue()));
+		else
+			circuitBreaker.onSuccess(durationNanos, TimeUnit.NANOSECONDS);
+	}
+}
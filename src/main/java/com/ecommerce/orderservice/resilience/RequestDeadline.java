@@ -0,0 +1,84 @@
+package com.ecommerce.orderservice.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import reactor.util.context.Context;
+
+/**
+ * Deadline of the inbound request being served, as a {@link System#nanoTime()}
+ * value. It is bound to the request thread by {@link RequestDeadlineFilter},
+ * carried to pool threads by {@link #wrap(Runnable)} and to reactive chains
+ * through the subscriber context.
+ */
+public final class RequestDeadline {
+
+	public static final String HEADER = "X-Request-Timeout-Ms";
+
+	public static final String CONTEXT_KEY = RequestDeadline.class.getName();
+
+	private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+	private RequestDeadline() {
+	}
+
+	public static Long current() {
+		return DEADLINE.get();
+	}
+
+	public static void set(Long deadline) {
+		if (deadline == null)
+			DEADLINE.remove();
+		else
+			DEADLINE.set(deadline);
+	}
+
+	public static void clear() {
+		DEADLINE.remove();
+	}
+
+	public static long remainingMillis() {
+		return remainingMillis(DEADLINE.get());
+	}
+
+	/**
+	 * Milliseconds left until the given deadline, or {@link Long#MAX_VALUE} when
+	 * there is none.
+	 */
+	public static long remainingMillis(Long deadline) {
+		if (deadline == null)
+			return Long.MAX_VALUE;
+		return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+	}
+
+	public static <T> T callWith(Long deadline, Supplier<T> call) {
+		Long previous = DEADLINE.get();
+		set(deadline);
+		try {
+			return call.get();
+		} finally {
+			set(previous);
+		}
+	}
+
+	/**
+	 * Runs the task under the deadline of the thread that submitted it.
+	 */
+	public static Runnable wrap(Runnable task) {
+		Long deadline = DEADLINE.get();
+		return () -> callWith(deadline, () -> {
+			task.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Copies the deadline of the current thread into a reactive chain, to be used
+	 * with {@code contextWrite} while assembling it on the request thread.
+	 */
+	public static Function<Context, Context> captureContext() {
+		Long deadline = DEADLINE.get();
+		return context -> (deadline == null) ? context : context.put(CONTEXT_KEY, deadline);
+	}
+}
@@ -0,0 +1,52 @@
+package com.ecommerce.orderservice.resilience;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Starts the deadline budget of every inbound request, taken from the
+ * {@value RequestDeadline#HEADER} header when the caller sends one.
+ */
+@Component
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+	@Value("${request.deadline.default-ms:10000}")
+	private long defaultBudgetMs;
+
+	@Value("${request.deadline.max-ms:60000}")
+	private long maxBudgetMs;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		long budgetMs = Math.min(parseBudget(request.getHeader(RequestDeadline.HEADER)), maxBudgetMs);
+		RequestDeadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs));
+
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			RequestDeadline.clear();
+		}
+	}
+
+	private long parseBudget(String header) {
+		if (header == null)
+			return defaultBudgetMs;
+
+		try {
+			return Math.max(0, Long.parseLong(header.trim()));
+		} catch (NumberFormatException e) {
+			return defaultBudgetMs;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package com.ecommerce.orderservice.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Global token bucket that caps retries at a fraction of downstream traffic.
+ * Every request deposits {@code ratio} of a token and every retry withdraws a
+ * whole one, so once that share of calls are retries further retries are
+ * refused until normal traffic refills the bucket.
+ */
+@Component
+public class RetryBudget {
+
+	private static final long TOKEN = 1000;
+
+	private final long depositPerRequest;
+
+	private final long maxBalance;
+
+	private final AtomicLong balance;
+
+	private final AtomicLong rejectedRetries = new AtomicLong();
+
+	public RetryBudget(@Value("${proxy.retry.budget-ratio:0.1}") double ratio,
+			@Value("${proxy.retry.budget-max-tokens:20}") int maxTokens) {
+		this.depositPerRequest = Math.round(ratio * TOKEN);
+		this.maxBalance = maxTokens * TOKEN;
+		this.balance = new AtomicLong(maxBalance);
+	}
+
+	public void recordRequest() {
+		balance.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(maxBalance, current + deposit));
+	}
+
+	public boolean tryAcquireRetry() {
+		long current;
+		do {
+			current = balance.get();
+			if (current < TOKEN) {
+				rejectedRetries.incrementAndGet();
+				return false;
+			}
+		} while (!balance.compareAndSet(current, current - TOKEN));
+		return true;
+	}
+
+	public double availableRetries() {
+		return (double) balance.get() / TOKEN;
+	}
+
+	public long rejectedRetries() {
+		return rejectedRetries.get();
+	}
+}
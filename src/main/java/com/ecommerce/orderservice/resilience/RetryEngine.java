@@ -0,0 +1,150 @@
+package com.ecommerce.orderservice.resilience;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.util.ProxyMetrics;
+
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Retries downstream calls with exponential backoff and full jitter. A retry is
+ * only attempted while it still fits in the deadline of the inbound request and
+ * the global {@link RetryBudget} allows it. Callers decide which failures are
+ * retryable, see {@link #mayResend} for calls that change state. Blocking
+ * calls wait out the backoff on their own thread, reactive calls on a timer.
+ */
+@Component
+public class RetryEngine {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RetryEngine.class);
+
+	@Value("${proxy.retry.max-attempts:4}")
+	private int maxAttempts;
+
+	@Value("${proxy.retry.initial-backoff-ms:100}")
+	private long initialBackoffMs;
+
+	@Value("${proxy.retry.max-backoff-ms:2000}")
+	private long maxBackoffMs;
+
+	@Autowired
+	private RetryBudget retryBudget;
+
+	@Autowired
+	private ProxyMetrics proxyMetrics;
+
+	/**
+	 * Runs the call and its retries on the current thread. The thread waits out
+	 * the backoff itself, so a retry never needs a free thread of a pool the
+	 * caller may already be holding. A backoff is only waited out when it ends
+	 * before the request deadline, so the wait is bounded by the deadline.
+	 */
+	public <T> T execute(String downstream, Supplier<T> call, Predicate<Throwable> retryable) {
+		retryBudget.recordRequest();
+		Long deadline = RequestDeadline.current();
+		checkDeadline(deadline);
+
+		for (int attempt = 1;; attempt++) {
+			try {
+				return call.get();
+			} catch (RuntimeException e) {
+				long backoffMs = backoffMillis(attempt);
+				if (!shouldRetry(downstream, e, attempt + 1, backoffMs, retryable, deadline))
+					throw e;
+
+				try {
+					TimeUnit.MILLISECONDS.sleep(backoffMs);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	private boolean shouldRetry(String downstream, RuntimeException failure, int attempt, long backoffMs,
+			Predicate<Throwable> retryable, Long deadline) {
+		if (attempt > maxAttempts || !retryable.test(failure)
+				|| RequestDeadline.remainingMillis(deadline) <= backoffMs || !retryBudget.tryAcquireRetry())
+			return false;
+
+		LOGGER.warn("Call to {} failed with {}, attempt {} of {} in {} ms", downstream, failure.toString(), attempt,
+				maxAttempts, backoffMs);
+		proxyMetrics.recordRetry(downstream);
+		return true;
+	}
+
+	/**
+	 * Reactive counterpart of {@link #execute}, the deadline is read from the
+	 * subscriber context (see {@link RequestDeadline#captureContext()}).
+	 */
+	public <T> Mono<T> withRetries(String downstream, Mono<T> call, Predicate<Throwable> retryable) {
+		return Mono.deferContextual(context -> {
+			retryBudget.recordRequest();
+			Long deadline = context.<Long>getOrDefault(RequestDeadline.CONTEXT_KEY, null);
+			checkDeadline(deadline);
+
+			Mono<T> attempts = call.retryWhen(Retry.backoff(maxAttempts - 1L, Duration.ofMillis(initialBackoffMs))
+					.maxBackoff(Duration.ofMillis(maxBackoffMs)).jitter(1.0)
+					.filter(e -> retryable.test(e) && retryBudget.tryAcquireRetry())
+					.doBeforeRetry(signal -> proxyMetrics.recordRetry(downstream))
+					.onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+
+			if (deadline == null)
+				return attempts;
+			return attempts.timeout(Duration.ofMillis(Math.max(0, RequestDeadline.remainingMillis(deadline))))
+					.onErrorMap(TimeoutException.class, e -> deadlineExceeded());
+		});
+	}
+
+	/**
+	 * Whether a call that failed with an I/O error may be sent again. Reads can
+	 * always be repeated. Any other call may already have been applied by the
+	 * downstream service, so it is only sent again when it failed while connecting
+	 * and never left this service.
+	 */
+	public static boolean mayResend(HttpMethod method, Throwable failure) {
+		if (method == HttpMethod.GET || method == HttpMethod.HEAD)
+			return true;
+
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException)
+				return true;
+			if (cause.getCause() == cause)
+				break;
+		}
+		return false;
+	}
+
+	private long backoffMillis(int retry) {
+		long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(retry - 1, 20));
+		return ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+
+	private void checkDeadline(Long deadline) {
+		if (RequestDeadline.remainingMillis(deadline) <= 0)
+			throw deadlineExceeded();
+	}
+
+	static EcommerceException deadlineExceeded() {
+		return new EcommerceException("deadline-exceeded",
+				"The request deadline was exceeded while waiting for a downstream service", HttpStatus.GATEWAY_TIMEOUT);
+	}
+}
@@ -0,0 +1,118 @@
+package com.ecommerce.orderservice.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import com.ecommerce.orderservice.util.ConcurrencyUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Coalesces identical concurrent calls: while a call for a key is in flight,
+ * other callers for the same key wait for its result instead of making their
+ * own. Nothing is kept once the call completes, so this never serves stale
+ * results the way a cache would. Callers wait for a shared call no longer than
+ * their own {@link RequestDeadline}.
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final Counter requests;
+
+	private final Counter collapsed;
+
+	public SingleFlight(String name, MeterRegistry meterRegistry) {
+		this.requests = Counter.builder("proxy.singleflight.requests").tag("name", name)
+				.description("Calls made through the single-flight group").register(meterRegistry);
+		this.collapsed = Counter.builder("proxy.singleflight.collapsed").tag("name", name)
+				.description("Calls that shared the result of a call already in flight").register(meterRegistry);
+		Gauge.builder("proxy.singleflight.collapse.ratio", this, SingleFlight::collapseRatio).tag("name", name)
+				.register(meterRegistry);
+	}
+
+	public V execute(K key, Supplier<V> call) {
+		requests.increment();
+
+		CompletableFuture<V> flight = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+		if (existing != null) {
+			collapsed.increment();
+			return await(existing);
+		}
+
+		try {
+			V result = call.get();
+			flight.complete(result);
+			return result;
+		} catch (Throwable e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+	private V await(CompletableFuture<V> flight) {
+		long remainingMs = RequestDeadline.remainingMillis();
+		try {
+			if (remainingMs == Long.MAX_VALUE)
+				return flight.join();
+			return flight.get(Math.max(0, remainingMs), TimeUnit.MILLISECONDS);
+		} catch (CompletionException | ExecutionException e) {
+			throw ConcurrencyUtils.unwrap(e);
+		} catch (TimeoutException e) {
+			throw RetryEngine.deadlineExceeded();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a shared call", e);
+		}
+	}
+
+	/**
+	 * Reactive counterpart of {@link #execute}. The call is subscribed by the first
+	 * subscriber for the key, in its context. If that subscriber cancels, the ones
+	 * waiting for its result make the call again rather than fail with it.
+	 */
+	public Mono<V> executeReactive(K key, Mono<V> call) {
+		return Mono.deferContextual(context -> {
+			requests.increment();
+
+			CompletableFuture<V> flight = new CompletableFuture<>();
+			CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+			if (existing != null) {
+				collapsed.increment();
+				// A copy, so that a follower that cancels leaves the flight to the others
+				Mono<V> shared = Mono.fromFuture(existing.copy()).onErrorResume(
+						e -> ConcurrencyUtils.unwrap(e) instanceof CancellationException,
+						e -> executeReactive(key, call));
+
+				Long deadline = context.<Long>getOrDefault(RequestDeadline.CONTEXT_KEY, null);
+				if (deadline == null)
+					return shared;
+				return shared.timeout(Duration.ofMillis(Math.max(0, RequestDeadline.remainingMillis(deadline))))
+						.onErrorMap(TimeoutException.class, e -> RetryEngine.deadlineExceeded());
+			}
+
+			return call.doOnSuccess(flight::complete).doOnError(flight::completeExceptionally)
+					.doOnCancel(() -> flight.completeExceptionally(new CancellationException()))
+					.doFinally(signal -> inFlight.remove(key, flight));
+		});
+	}
+
+	public double collapseRatio() {
+		double total = requests.count();
+		return (total == 0) ? 0 : collapsed.count() / total;
+	}
+}
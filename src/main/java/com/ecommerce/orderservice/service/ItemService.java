@@ -17,4 +17,6 @@ public interface ItemService {
 	void deleteItem(long id);
 	
 	void reduceProductStock(ItemDto item);
+
+	void increaseProductStock(ItemDto item);
 }
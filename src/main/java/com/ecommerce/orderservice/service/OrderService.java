@@ -1,17 +1,52 @@
 package com.ecommerce.orderservice.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
+import com.ecommerce.orderservice.model.BulkOrderResponseDto;
 import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.OrderFilter;
+import com.ecommerce.orderservice.model.OrderPageDto;
+import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.model.OrderSummaryDto;
+import com.ecommerce.orderservice.model.OrderSummaryPageDto;
 
 public interface OrderService {
 
-	List<OrderDto> getAllOrders();
-
 	OrderDto getOrderById(long id);
 
+	/**
+	 * Returns the order already serialized as JSON, or null when it does not
+	 * exist.
+	 */
+	byte[] getOrderJsonById(long id);
+
+	List<OrderSummaryDto> getOrderSummaries(Long afterId, int limit);
+
+	OrderPageDto getOrders(OrderFilter filter, Long afterId, int limit);
+
+	OrderSummaryPageDto getOrderSummaries(OrderFilter filter, Long afterId, int limit);
+
+	void exportOrders(OrderFilter filter, OutputStream outputStream) throws IOException;
+
 	OrderDto createOrder(OrderDto order);
 
+	/**
+	 * Stores the order as pending and reserves its stock in the background.
+	 * Returns null when too many orders are already waiting.
+	 */
+	OrderDto submitOrder(OrderDto order);
+
+	/**
+	 * Creates the orders read from a JSON array or newline delimited JSON as
+	 * pending, reporting the outcome of every record.
+	 */
+	BulkOrderResponseDto importOrders(InputStream inputStream) throws IOException;
+
+	OrderStatus getOrderStatus(long id);
+
 	OrderDto updateOrder(long id, OrderDto order);
 
 	void deleteOrder(long id);
@@ -0,0 +1,10 @@
+package com.ecommerce.orderservice.service;
+
+import com.ecommerce.orderservice.model.OrderDto;
+
+import reactor.core.publisher.Mono;
+
+public interface ReactiveOrderService {
+
+	Mono<OrderDto> createOrder(OrderDto order);
+}
@@ -1,159 +1,499 @@
 package com.ecommerce.orderservice.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
 
-import org.apache.logging.log4j.ThreadContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.BufferingClientHttpRequestFactory;
-import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.model.InventoryAdjustmentDto;
 import com.ecommerce.orderservice.model.InventoryDto;
+import com.ecommerce.orderservice.model.InventoryReservationDto;
+import com.ecommerce.orderservice.resilience.DownstreamGuard;
+import com.ecommerce.orderservice.resilience.RetryEngine;
+import com.ecommerce.orderservice.resilience.SingleFlight;
+import com.ecommerce.orderservice.util.ConcurrencyUtils;
+import com.ecommerce.orderservice.util.ProxyCallLogger;
+import com.ecommerce.orderservice.util.ProxyMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Service
 public class InventoryServiceProxy {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(InventoryServiceProxy.class);
 
+	private static final String DOWNSTREAM = "inventory-service";
+
 	@Autowired
 	private RestTemplate restTemplate;
 
-	private static String INVENTORY_SERVICE_URL = "http://localhost:8082/api/inventory/";
+	@Autowired
+	private ThreadPoolTaskExecutor proxyTaskExecutor;
 
-	public InventoryDto getInventoryById(Long inventoryId) {
-		String traceId = UUID.randomUUID().toString();
+	@Autowired
+	private RetryEngine retryEngine;
 
-		HttpHeaders headers = new HttpHeaders();
-		headers.set("TRACE", traceId);
+	@Autowired
+	private ProxyCallLogger proxyCallLogger;
 
-		HttpEntity<InventoryDto> httpEntity = new HttpEntity<>(null, headers);
+	@Autowired
+	private ProxyMetrics proxyMetrics;
 
-		return processProxyRequest(INVENTORY_SERVICE_URL + inventoryId, HttpMethod.GET, httpEntity,
-				new ParameterizedTypeReference<InventoryDto>() {
-				}, traceId).getBody();
+	@Autowired
+	private DownstreamGuard inventoryServiceGuard;
+
+	@Value("${proxy.batch.max-ids:50}")
+	private int batchMaxIds;
+
+	@Value("${proxy.inventory-service.url:http://localhost:8082/api/inventory/}")
+	private String inventoryServiceUrl;
+
+	static final Set<HttpStatus> UNSUPPORTED_ENDPOINT_STATUSES = EnumSet.of(HttpStatus.BAD_REQUEST,
+			HttpStatus.NOT_FOUND, HttpStatus.METHOD_NOT_ALLOWED, HttpStatus.NOT_IMPLEMENTED);
+
+	private final AtomicBoolean bulkEndpointSupported = new AtomicBoolean(true);
+
+	private final AtomicBoolean reservationEndpointSupported = new AtomicBoolean(true);
+
+	private final AtomicBoolean adjustmentEndpointSupported = new AtomicBoolean(true);
+
+	@Value("${proxy.reservation.max-attempts:5}")
+	private int reservationMaxAttempts;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private SingleFlight<String, ResponseEntity<?>> readFlight;
+
+	@PostConstruct
+	public void initReadFlight() {
+		readFlight = new SingleFlight<>("inventoryService", meterRegistry);
 	}
 
-	public InventoryDto createInventory(InventoryDto inventory) {
-		String traceId = UUID.randomUUID().toString();
+	public InventoryDto getInventoryById(Long inventoryId) {
+		return processCoalescedGet(inventoryServiceUrl + inventoryId, new ParameterizedTypeReference<InventoryDto>() {
+		}).getBody();
+	}
 
+	public InventoryDto createInventory(InventoryDto inventory) {
 		HttpHeaders headers = new HttpHeaders();
 		headers.setContentType(MediaType.APPLICATION_JSON);
-		headers.set("TRACE", traceId);
 
 		HttpEntity<InventoryDto> httpEntity = new HttpEntity<>(inventory, headers);
 
-		return processProxyRequest(INVENTORY_SERVICE_URL, HttpMethod.POST, httpEntity,
+		return processProxyRequest(inventoryServiceUrl, HttpMethod.POST, httpEntity,
 				new ParameterizedTypeReference<InventoryDto>() {
-				}, UUID.randomUUID().toString()).getBody();
+				}).getBody();
 	}
 
 	public InventoryDto updateInventory(long id, InventoryDto inventory) {
-		String traceId = UUID.randomUUID().toString();
-
 		HttpHeaders headers = new HttpHeaders();
 		headers.setContentType(MediaType.APPLICATION_JSON);
-		headers.set("TRACE", traceId);
 
 		HttpEntity<InventoryDto> httpEntity = new HttpEntity<>(inventory, headers);
 
-		return processProxyRequest(INVENTORY_SERVICE_URL + id, HttpMethod.PUT, httpEntity,
+		return processProxyRequest(inventoryServiceUrl + id, HttpMethod.PUT, httpEntity,
 				new ParameterizedTypeReference<InventoryDto>() {
-				}, UUID.randomUUID().toString()).getBody();
+				}).getBody();
 	}
 
 	public void deleteInventory(long id) {
-		String traceId = UUID.randomUUID().toString();
-
 		HttpHeaders headers = new HttpHeaders();
-		headers.set("TRACE", traceId);
 
 		HttpEntity<InventoryDto> httpEntity = new HttpEntity<>(null, headers);
 
-		String responseBody = processProxyRequest(INVENTORY_SERVICE_URL + id, HttpMethod.DELETE, httpEntity,
+		String responseBody = processProxyRequest(inventoryServiceUrl + id, HttpMethod.DELETE, httpEntity,
 				new ParameterizedTypeReference<String>() {
-				}, UUID.randomUUID().toString()).getBody();
+				}).getBody();
 		LOGGER.info(responseBody);
 	}
 
 	public List<InventoryDto> getAllInventory() {
-		String traceId = UUID.randomUUID().toString();
-
 		HttpHeaders headers = new HttpHeaders();
-		headers.set("TRACE", traceId);
 
 		HttpEntity<InventoryDto> httpEntity = new HttpEntity<>(null, headers);
 
-		return processProxyRequest(INVENTORY_SERVICE_URL, HttpMethod.GET, httpEntity,
+		return processProxyRequest(inventoryServiceUrl, HttpMethod.GET, httpEntity,
 				new ParameterizedTypeReference<List<InventoryDto>>() {
-				}, UUID.randomUUID().toString()).getBody();
+				}).getBody();
 	}
 
 	public List<InventoryDto> getInventoryByProductId(Long inventoryId) {
-		String traceId = UUID.randomUUID().toString();
-
-		HttpHeaders headers = new HttpHeaders();
-		headers.set("TRACE", traceId);
+		return processCoalescedGet(inventoryServiceUrl + "product/" + inventoryId,
+				new ParameterizedTypeReference<List<InventoryDto>>() {
+				}).getBody();
+	}
 
-		HttpEntity<InventoryDto> httpEntity = new HttpEntity<>(null, headers);
+	/**
+	 * Fetches the inventory of the given products in as few requests as possible.
+	 * Every requested product is present in the returned map, with an empty list
+	 * when it has no inventory.
+	 */
+	public Map<Long, List<InventoryDto>> getInventoryByProductIds(Collection<Long> productIds) {
+		List<Long> ids = productIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+		Map<Long, List<InventoryDto>> inventories = new HashMap<>();
+
+		for (int from = 0; from < ids.size(); from += batchMaxIds) {
+			List<Long> chunk = ids.subList(from, Math.min(from + batchMaxIds, ids.size()));
+
+			Map<Long, List<InventoryDto>> fetched = bulkEndpointSupported.get() ? fetchInventoryInBulk(chunk)
+					: null;
+			if (fetched == null)
+				fetched = fetchInventoryInParallel(chunk);
+
+			for (Long productId : chunk)
+				inventories.put(productId, fetched.getOrDefault(productId, Collections.emptyList()));
+		}
+		return inventories;
+	}
 
-		return processProxyRequest(INVENTORY_SERVICE_URL + "product/" + inventoryId, HttpMethod.GET, httpEntity,
+	private Map<Long, List<InventoryDto>> fetchInventoryInBulk(List<Long> productIds) {
+		String ids = productIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+		ResponseEntity<List<InventoryDto>> response = processCoalescedGet(
+				inventoryServiceUrl + "product/batch?productIds=" + ids,
 				new ParameterizedTypeReference<List<InventoryDto>>() {
-				}, UUID.randomUUID().toString()).getBody();
+				});
+
+		HttpStatus status = HttpStatus.resolve(response.getStatusCodeValue());
+		if (status != null && status.is2xxSuccessful())
+			return (response.getBody() == null) ? Collections.emptyMap()
+					: response.getBody().stream().filter(inventory -> inventory.getProductId() != null)
+							.collect(Collectors.groupingBy(InventoryDto::getProductId));
+
+		if (UNSUPPORTED_ENDPOINT_STATUSES.contains(status)) {
+			LOGGER.info("Inventory service has no bulk endpoint, falling back to single requests");
+			bulkEndpointSupported.set(false);
+		}
+		return null;
+	}
+
+	private Map<Long, List<InventoryDto>> fetchInventoryInParallel(List<Long> productIds) {
+		List<CompletableFuture<List<InventoryDto>>> futures = productIds.stream()
+				.map(productId -> CompletableFuture.supplyAsync(() -> fetchInventoryByProductId(productId),
+						proxyTaskExecutor))
+				.collect(Collectors.toList());
+
+		List<List<InventoryDto>> results = ConcurrencyUtils.joinAll(futures);
+
+		Map<Long, List<InventoryDto>> inventories = new HashMap<>();
+		for (int i = 0; i < productIds.size(); i++)
+			inventories.put(productIds.get(i), results.get(i));
+		return inventories;
+	}
+
+	private List<InventoryDto> fetchInventoryByProductId(Long productId) {
+		ResponseEntity<List<InventoryDto>> response = processCoalescedGet(
+				inventoryServiceUrl + "product/" + productId, new ParameterizedTypeReference<List<InventoryDto>>() {
+				});
+
+		// Error responses carry the raw error body, so only read the body on success
+		if (!HttpStatus.valueOf(response.getStatusCodeValue()).is2xxSuccessful() || response.getBody() == null)
+			return Collections.emptyList();
+		return response.getBody();
 	}
 
+	/**
+	 * GET shared by every caller that asks for the same URL while it is in flight.
+	 */
 	@SuppressWarnings("unchecked")
-	@Retryable(exclude = {
-			HttpStatusCodeException.class }, include = Exception.class, backoff = @Backoff(delay = 5000, multiplier = 4.0), maxAttempts = 4)
-	public <T> ResponseEntity<T> processProxyRequest(String url, HttpMethod method, HttpEntity<InventoryDto> httpEntity,
-			ParameterizedTypeReference<T> entityType, String traceId) {
+	private <T> ResponseEntity<T> processCoalescedGet(String url, ParameterizedTypeReference<T> entityType) {
+		return (ResponseEntity<T>) readFlight.execute(url,
+				() -> processProxyRequest(url, HttpMethod.GET, new HttpEntity<>(null, new HttpHeaders()), entityType));
+	}
+
+	/**
+	 * Atomically takes the given quantity from an inventory, but only if at least
+	 * that much is left. Returns the updated inventory, or null when there is not
+	 * enough stock.
+	 */
+	public InventoryDto reserveInventory(long inventoryId, int quantity) {
+		if (reservationEndpointSupported.get()) {
+			ResponseEntity<InventoryDto> response = postReservation(inventoryServiceUrl + inventoryId + "/reserve",
+					quantity);
+			HttpStatus status = HttpStatus.resolve(response.getStatusCodeValue());
+
+			if (status != null && status.is2xxSuccessful())
+				return response.getBody();
+			if (status == HttpStatus.CONFLICT)
+				return null;
+			checkReservationEndpointSupported(status);
+		}
+		return adjustInventoryConditionally(inventoryId, -quantity);
+	}
+
+	/**
+	 * Atomically takes the given quantity from any inventory of the product that
+	 * has enough stock left. Returns the inventory it was taken from, or null when
+	 * none has enough stock.
+	 */
+	public InventoryDto reserveProductInventory(long productId, int quantity) {
+		if (reservationEndpointSupported.get()) {
+			ResponseEntity<InventoryDto> response = postReservation(
+					inventoryServiceUrl + "product/" + productId + "/reserve", quantity);
+			HttpStatus status = HttpStatus.resolve(response.getStatusCodeValue());
+
+			if (status != null && status.is2xxSuccessful())
+				return response.getBody();
+			if (status == HttpStatus.CONFLICT)
+				return null;
+			checkReservationEndpointSupported(status);
+		}
+
+		for (InventoryDto inventory : fetchInventoryByProductId(productId)) {
+			if (inventory.getVendorInventory() != null && inventory.getVendorInventory() >= quantity) {
+				InventoryDto reserved = adjustInventoryConditionally(inventory.getId(), -quantity);
+				if (reserved != null)
+					return reserved;
+			}
+		}
+		return null;
+	}
 
-		// You can add logging, metrics collection, etc. here
+	/**
+	 * Atomically puts the given quantity back into an inventory.
+	 */
+	public InventoryDto releaseInventory(long inventoryId, int quantity) {
+		if (reservationEndpointSupported.get()) {
+			ResponseEntity<InventoryDto> response = postReservation(inventoryServiceUrl + inventoryId + "/release",
+					quantity);
+			HttpStatus status = HttpStatus.resolve(response.getStatusCodeValue());
+
+			if (status != null && status.is2xxSuccessful())
+				return response.getBody();
+			checkReservationEndpointSupported(status);
+		}
+		return adjustInventoryConditionally(inventoryId, quantity);
+	}
 
-		ThreadContext.put("traceId", traceId);
-		LOGGER.info("Trace Id : " + traceId);
+	/**
+	 * Applies a batch of stock changes in one request. The inventory service
+	 * applies all of them or, when any inventory is short of stock, none. The
+	 * returned adjustments are in request order and name the inventory each one
+	 * was applied to.
+	 */
+	public List<InventoryAdjustmentDto> adjustInventories(List<InventoryAdjustmentDto> adjustments) {
+		if (adjustments.isEmpty())
+			return Collections.emptyList();
+
+		if (adjustmentEndpointSupported.get()) {
+			HttpHeaders headers = new HttpHeaders();
+			headers.setContentType(MediaType.APPLICATION_JSON);
+
+			ResponseEntity<List<InventoryAdjustmentDto>> response = processProxyRequest(
+					inventoryServiceUrl + "adjust/batch", HttpMethod.POST, new HttpEntity<>(adjustments, headers),
+					new ParameterizedTypeReference<List<InventoryAdjustmentDto>>() {
+					});
+			HttpStatus status = HttpStatus.resolve(response.getStatusCodeValue());
+
+			if (status != null && status.is2xxSuccessful() && response.getBody() != null)
+				return response.getBody();
+			if (status == HttpStatus.CONFLICT)
+				throw new EcommerceException("product-not-available",
+						"Not enough units are left in stock to apply the changes.", HttpStatus.NOT_FOUND);
+
+			if (UNSUPPORTED_ENDPOINT_STATUSES.contains(status)) {
+				LOGGER.info("Inventory service has no batch adjustment endpoint, falling back to single requests");
+				adjustmentEndpointSupported.set(false);
+			} else {
+				throw new EcommerceException("inventory-adjustment-failed",
+						"Inventory service rejected the stock changes with status " + status, HttpStatus.BAD_GATEWAY);
+			}
+		}
+		return adjustInventoriesOneByOne(adjustments);
+	}
 
-		ClientHttpRequestFactory factory = new BufferingClientHttpRequestFactory(new SimpleClientHttpRequestFactory());
-		restTemplate.setRequestFactory(factory);
+	/**
+	 * Fallback for inventory services without the batch endpoint. The changes are
+	 * applied one at a time, and the ones already applied are undone when one of
+	 * them fails.
+	 */
+	private List<InventoryAdjustmentDto> adjustInventoriesOneByOne(List<InventoryAdjustmentDto> adjustments) {
+		List<InventoryAdjustmentDto> applied = new ArrayList<>();
 
 		try {
-			ResponseEntity<T> response = restTemplate.exchange(url, method, httpEntity, entityType);
+			for (InventoryAdjustmentDto adjustment : adjustments) {
+				Long inventoryId = adjustment.getInventoryId();
+
+				if (adjustment.getDelta() < 0) {
+					int quantity = -adjustment.getDelta();
+					InventoryDto reserved = (inventoryId == null) ? null : reserveInventory(inventoryId, quantity);
+					if (reserved == null)
+						reserved = reserveProductInventory(adjustment.getProductId(), quantity);
+					if (reserved == null)
+						throw new EcommerceException("product-not-available", "Product with id: "
+								+ adjustment.getProductId() + " does not have " + quantity
+								+ " units left in any inventory.", HttpStatus.NOT_FOUND);
+					inventoryId = reserved.getId();
+				} else {
+					if (inventoryId == null)
+						inventoryId = getInventoryByProductId(adjustment.getProductId()).get(0).getId();
+					releaseInventory(inventoryId, adjustment.getDelta());
+				}
+
+				applied.add(new InventoryAdjustmentDto(inventoryId, adjustment.getProductId(), adjustment.getDelta()));
+			}
+		} catch (RuntimeException e) {
+			for (InventoryAdjustmentDto adjustment : applied) {
+				try {
+					if (adjustment.getDelta() < 0)
+						releaseInventory(adjustment.getInventoryId(), -adjustment.getDelta());
+					else
+						reserveInventory(adjustment.getInventoryId(), adjustment.getDelta());
+				} catch (RuntimeException undoException) {
+					LOGGER.error("Could not undo stock change of {} units on inventory id: {}", adjustment.getDelta(),
+							adjustment.getInventoryId(), undoException);
+				}
+			}
+			throw e;
+		}
+		return applied;
+	}
 
-			LOGGER.info("Response Status : " + response.getStatusCode().toString());
-			LOGGER.info("Response Headers : " + response.getHeaders().toString());
-			LOGGER.info("Response Body : " + response.getBody().toString());
+	private ResponseEntity<InventoryDto> postReservation(String url, int quantity) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
 
+		HttpEntity<InventoryReservationDto> httpEntity = new HttpEntity<>(new InventoryReservationDto(quantity),
+				headers);
+
+		return processProxyRequest(url, HttpMethod.POST, httpEntity, new ParameterizedTypeReference<InventoryDto>() {
+		});
+	}
+
+	private void checkReservationEndpointSupported(HttpStatus status) {
+		if (UNSUPPORTED_ENDPOINT_STATUSES.contains(status)) {
+			LOGGER.info("Inventory service has no reservation endpoint, falling back to conditional updates");
+			reservationEndpointSupported.set(false);
+		} else {
+			throw new EcommerceException("inventory-reservation-failed",
+					"Inventory service rejected the reservation with status " + status, HttpStatus.BAD_GATEWAY);
+		}
+	}
+
+	/**
+	 * Fallback for inventory services without a reservation endpoint. Reads the
+	 * inventory together with its ETag and writes it back with If-Match, retrying
+	 * when another writer got there first.
+	 */
+	private InventoryDto adjustInventoryConditionally(long inventoryId, int delta) {
+		for (int attempt = 1; attempt <= reservationMaxAttempts; attempt++) {
+			HttpHeaders headers = new HttpHeaders();
+
+			ResponseEntity<InventoryDto> current = processProxyRequest(inventoryServiceUrl + inventoryId,
+					HttpMethod.GET, new HttpEntity<>(null, headers), new ParameterizedTypeReference<InventoryDto>() {
+					});
+			if (!HttpStatus.valueOf(current.getStatusCodeValue()).is2xxSuccessful() || current.getBody() == null)
+				return null;
+
+			InventoryDto inventory = current.getBody();
+			int available = (inventory.getVendorInventory() == null) ? 0 : inventory.getVendorInventory();
+			if (available + delta < 0)
+				return null;
+			inventory.setVendorInventory(available + delta);
+
+			HttpHeaders updateHeaders = new HttpHeaders();
+			updateHeaders.setContentType(MediaType.APPLICATION_JSON);
+			if (current.getHeaders().getETag() != null)
+				updateHeaders.setIfMatch(current.getHeaders().getETag());
+
+			ResponseEntity<InventoryDto> updated = processProxyRequest(inventoryServiceUrl + inventoryId,
+					HttpMethod.PUT, new HttpEntity<>(inventory, updateHeaders),
+					new ParameterizedTypeReference<InventoryDto>() {
+					});
+			if (HttpStatus.valueOf(updated.getStatusCodeValue()).is2xxSuccessful())
+				return updated.getBody();
+			if (updated.getStatusCodeValue() != HttpStatus.PRECONDITION_FAILED.value())
+				throw new EcommerceException("inventory-update-failed", "Inventory service rejected the update of "
+						+ "inventory id: " + inventoryId + " with status " + updated.getStatusCodeValue(),
+						HttpStatus.BAD_GATEWAY);
+
+			LOGGER.info("Inventory id: {} changed concurrently, retrying ({}/{})", inventoryId, attempt,
+					reservationMaxAttempts);
+		}
+
+		throw new EcommerceException("inventory-contention",
+				"Inventory id: " + inventoryId + " is being updated concurrently. Please try again later",
+				HttpStatus.CONFLICT);
+	}
+
+	public <T> ResponseEntity<T> processProxyRequest(String url, HttpMethod method, HttpEntity<?> httpEntity,
+			ParameterizedTypeReference<T> entityType) {
+
+		try {
+			// Only I/O failures of calls that are safe to send again are retried, error
+			// responses are returned to the caller
+			return retryEngine.execute(DOWNSTREAM,
+					() -> inventoryServiceGuard.call(() -> exchange(url, method, httpEntity, entityType)),
+					e -> e instanceof ResourceAccessException && RetryEngine.mayResend(method, e));
+		} catch (EcommerceException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			return recoverFromRestClientErrors(e, url, method, httpEntity, entityType);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> httpEntity,
+			ParameterizedTypeReference<T> entityType) {
+
+		long start = System.nanoTime();
+		try {
+			ResponseEntity<T> response = restTemplate.exchange(url, method, httpEntity, entityType);
+
+			long duration = System.nanoTime() - start;
+			proxyMetrics.recordResponse(DOWNSTREAM, method, url, response.getStatusCodeValue(), duration);
+			proxyCallLogger.logSuccess(DOWNSTREAM, method, url, response.getStatusCodeValue(), response.getBody(),
+					duration);
 			return response;
 
 		} catch (HttpStatusCodeException e) {
-			LOGGER.error("Exception occured in calling REST API : " + url);
-			LOGGER.error("Error Message : " + e.getMessage());
+			long duration = System.nanoTime() - start;
+			proxyMetrics.recordResponse(DOWNSTREAM, method, url, e.getRawStatusCode(), duration);
+			proxyCallLogger.logErrorResponse(DOWNSTREAM, method, url, e.getRawStatusCode(),
+					e.getResponseBodyAsByteArray(), duration);
 
 			return new ResponseEntity<T>((T) e.getResponseBodyAsString(), e.getResponseHeaders(), e.getRawStatusCode());
+		} catch (RuntimeException e) {
+			long duration = System.nanoTime() - start;
+			proxyMetrics.recordFailure(DOWNSTREAM, method, url, e, duration);
+			proxyCallLogger.logFailure(DOWNSTREAM, method, url, e, duration);
+			throw e;
 		}
-
 	}
 
-	@Recover
 	public <T> ResponseEntity<T> recoverFromRestClientErrors(Exception e, String url, HttpMethod method,
-			HttpEntity<InventoryDto> httpEntity, ParameterizedTypeReference<T> entityType, String traceId) {
+			HttpEntity<?> httpEntity, ParameterizedTypeReference<T> entityType) {
 
-		LOGGER.error("Retry method for the following url " + url + " has failed" + e.getMessage());
-		LOGGER.error(e.getStackTrace().toString());
+		LOGGER.error("Retry method for the following url {} has failed", url, e);
+		proxyMetrics.recordRecovery(DOWNSTREAM, e);
 
 		throw new RuntimeException("There was an error trying to process you request. Please try again later");
 	}
@@ -0,0 +1,134 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ecommerce.orderservice.entity.Item;
+import com.ecommerce.orderservice.model.InventoryAdjustmentDto;
+import com.ecommerce.orderservice.model.ItemDto;
+
+/**
+ * Difference between the stored items of an order and the items of an update,
+ * matched by item id. Incoming items without an id, with an id of another order
+ * or with a different product are new lines; the stored items they do not
+ * match are removed.
+ */
+final class ItemDiff {
+
+	private final List<ItemDto> added = new ArrayList<>();
+
+	private final Map<Long, ItemDto> kept = new LinkedHashMap<>();
+
+	private final List<Item> removed = new ArrayList<>();
+
+	private final List<InventoryAdjustmentDto> adjustments = new ArrayList<>();
+
+	private ItemDiff() {
+	}
+
+	static ItemDiff of(List<Item> storedItems, List<ItemDto> incomingItems) {
+		ItemDiff diff = new ItemDiff();
+
+		Map<Long, Item> storedById = new HashMap<>();
+		for (Item item : storedItems)
+			storedById.put(item.getId(), item);
+
+		for (ItemDto incoming : incomingItems) {
+			Item stored = (incoming.getId() == null) ? null : storedById.get(incoming.getId());
+			if (stored == null || diff.kept.containsKey(stored.getId())
+					|| !stored.getProductId().equals(incoming.getProductId()))
+				diff.added.add(incoming);
+			else
+				diff.kept.put(stored.getId(), incoming);
+		}
+
+		for (Item stored : storedItems) {
+			if (!diff.kept.containsKey(stored.getId()))
+				diff.removed.add(stored);
+		}
+
+		// Stock is put back before any is taken, so that the fallback of single
+		// requests never needs more stock than the order ends up holding
+		List<InventoryAdjustmentDto> reservations = new ArrayList<>();
+		for (Item stored : diff.removed)
+			diff.adjustments.add(adjustment(stored.getInventoryId(), stored.getProductId(), stored.getQuantity()));
+		diff.kept.forEach((itemId, incoming) -> {
+			Item stored = storedById.get(itemId);
+			int delta = stored.getQuantity() - incoming.getQuantity();
+			if (delta > 0)
+				diff.adjustments.add(adjustment(stored.getInventoryId(), stored.getProductId(), delta));
+			else if (delta < 0)
+				reservations.add(adjustment(stored.getInventoryId(), stored.getProductId(), delta));
+		});
+		diff.adjustments.addAll(reservations);
+		for (ItemDto incoming : diff.added)
+			diff.adjustments.add(adjustment(incoming.getInventoryId(), incoming.getProductId(), -incoming.getQuantity()));
+
+		return diff;
+	}
+
+	private static InventoryAdjustmentDto adjustment(Long inventoryId, Long productId, int delta) {
+		return new InventoryAdjustmentDto(inventoryId, productId, delta);
+	}
+
+	List<ItemDto> added() {
+		return added;
+	}
+
+	/**
+	 * Incoming items matched to a stored item, keyed by its id.
+	 */
+	Map<Long, ItemDto> kept() {
+		return kept;
+	}
+
+	List<Item> removed() {
+		return removed;
+	}
+
+	/**
+	 * Stock changes of the added, removed and resized lines only. The reservations
+	 * of added lines come last, in the order of {@link #added()}.
+	 */
+	List<InventoryAdjustmentDto> adjustments() {
+		return Collections.unmodifiableList(adjustments);
+	}
+
+	/**
+	 * Whether every change to a stored line was applied to the inventory that line
+	 * holds its stock in. Only added lines may take their stock from any
+	 * inventory, since their inventory is recorded once the changes are applied.
+	 */
+	boolean appliedToHeldInventories(List<InventoryAdjustmentDto> appliedAdjustments) {
+		int storedLineChanges = adjustments.size() - added.size();
+		for (int i = 0; i < storedLineChanges; i++) {
+			Long heldInventoryId = adjustments.get(i).getInventoryId();
+			if (heldInventoryId != null && !heldInventoryId.equals(appliedAdjustments.get(i).getInventoryId()))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Records on the added lines the inventory their stock was taken from.
+	 */
+	void assignInventories(List<InventoryAdjustmentDto> appliedAdjustments) {
+		int offset = appliedAdjustments.size() - added.size();
+		for (int i = 0; i < added.size(); i++)
+			added.get(i).setInventoryId(appliedAdjustments.get(offset + i).getInventoryId());
+	}
+
+	/**
+	 * The adjustments that undo the applied ones.
+	 */
+	static List<InventoryAdjustmentDto> inverse(List<InventoryAdjustmentDto> appliedAdjustments) {
+		List<InventoryAdjustmentDto> inverse = new ArrayList<>();
+		for (InventoryAdjustmentDto adjustment : appliedAdjustments)
+			inverse.add(adjustment(adjustment.getInventoryId(), adjustment.getProductId(), -adjustment.getDelta()));
+		return inverse;
+	}
+}
@@ -4,11 +4,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import com.ecommerce.orderservice.entity.Item;
+import com.ecommerce.orderservice.mapper.ItemMapper;
+import com.ecommerce.orderservice.exception.EcommerceException;
 import com.ecommerce.orderservice.repository.ItemRepository;
 import com.ecommerce.orderservice.service.ItemService;
 import com.ecommerce.orderservice.model.InventoryDto;
@@ -24,13 +26,13 @@ public class ItemServiceImpl implements ItemService {
 	InventoryServiceProxy inventoryServiceProxy;
 
 	@Autowired
-	private ModelMapper mapper;
+	private ItemMapper mapper;
 
 	@Override
 	public List<ItemDto> getAllItems() {
 		List<ItemDto> items = new ArrayList<>();
 		itemRepository.findAll().forEach(item -> {
-			items.add(mapper.map(item, ItemDto.class));
+			items.add(mapper.toDto(item));
 		});
 		return items;
 	}
@@ -38,7 +40,7 @@ public class ItemServiceImpl implements ItemService {
 	@Override
 	public ItemDto getItemById(long id) {
 		Optional<Item> item = itemRepository.findById(id);
-		return (item.isPresent() ? mapper.map(item.get(), ItemDto.class) : null);
+		return (item.isPresent() ? mapper.toDto(item.get()) : null);
 	}
 
 	@Override
@@ -46,8 +48,8 @@ public class ItemServiceImpl implements ItemService {
 		// Reduce the product quantity
 		reduceProductStock(itemDto);
 
-		Item item = mapper.map(itemDto, Item.class);
-		return mapper.map(itemRepository.save(item), ItemDto.class);
+		Item item = mapper.toEntity(itemDto);
+		return mapper.toDto(itemRepository.save(item));
 	}
 
 	@Override
@@ -55,17 +57,21 @@ public class ItemServiceImpl implements ItemService {
 
 		Optional<Item> updatedItem = itemRepository.findById(id).map(existingItem -> {
 
+			// The item keeps the stock it already holds, so the change is made on the
+			// inventory that stock was taken from
+			itemDto.setInventoryId(existingItem.getInventoryId());
+
 			// Update the product quantity according to the change
 			if (itemDto.getQuantity() > existingItem.getQuantity())
-				reduceProductStock(itemDto, itemDto.getQuantity() - existingItem.getQuantity());
+				reserveAdditionalStock(itemDto, itemDto.getQuantity() - existingItem.getQuantity());
 			else if (itemDto.getQuantity() < existingItem.getQuantity())
-				increaseProductStock(itemDto, existingItem.getQuantity() + itemDto.getQuantity());
+				increaseProductStock(itemDto, existingItem.getQuantity() - itemDto.getQuantity());
 
-			Item item = mapper.map(itemDto, Item.class);
+			Item item = mapper.toEntity(itemDto);
 			return itemRepository.save(existingItem.updateWith(item));
 		});
 
-		return (updatedItem.isPresent()) ? mapper.map(updatedItem.get(), ItemDto.class) : null;
+		return (updatedItem.isPresent()) ? mapper.toDto(updatedItem.get()) : null;
 	}
 
 	@Override
@@ -78,104 +84,62 @@ public class ItemServiceImpl implements ItemService {
 		itemRepository.deleteById(id);
 	}
 
-	private void increaseProductStock(ItemDto itemDto) {
-		if (itemDto.getInventoryId() != null) {
-			InventoryDto inventoryDto = inventoryServiceProxy.getInventoryById(itemDto.getInventoryId());
-			int quantity = inventoryDto.getVendorInventory() + itemDto.getQuantity();
-			inventoryDto.setVendorInventory(quantity);
-			inventoryServiceProxy.updateInventory(inventoryDto.getId(), inventoryDto);
-		} else {
-			InventoryDto inventoryDto = inventoryServiceProxy.getInventoryByProductId(itemDto.getProductId()).get(0);
-			int quantity = inventoryDto.getVendorInventory() + itemDto.getQuantity();
-			inventoryDto.setVendorInventory(quantity);
-			inventoryServiceProxy.updateInventory(inventoryDto.getId(), inventoryDto);
-
-			itemDto.setInventoryId(inventoryDto.getId());
-			updateItem(itemDto.getId(), itemDto);
-		}
+	@Override
+	public void increaseProductStock(ItemDto itemDto) {
+		increaseProductStock(itemDto, itemDto.getQuantity());
 	}
 
 	private void increaseProductStock(ItemDto itemDto, int quantity) {
-		if (itemDto.getInventoryId() != null) {
-			InventoryDto inventoryDto = inventoryServiceProxy.getInventoryById(itemDto.getInventoryId());
-			int quant = inventoryDto.getVendorInventory() + quantity;
-			inventoryDto.setVendorInventory(quant);
-			inventoryServiceProxy.updateInventory(inventoryDto.getId(), inventoryDto);
-		} else {
+		if (itemDto.getInventoryId() == null) {
 			InventoryDto inventoryDto = inventoryServiceProxy.getInventoryByProductId(itemDto.getProductId()).get(0);
-			int quant = inventoryDto.getVendorInventory() + quantity;
-			inventoryDto.setVendorInventory(quant);
-			inventoryServiceProxy.updateInventory(inventoryDto.getId(), inventoryDto);
-
 			itemDto.setInventoryId(inventoryDto.getId());
-			updateItem(itemDto.getId(), itemDto);
 		}
+
+		inventoryServiceProxy.releaseInventory(itemDto.getInventoryId(), quantity);
 	}
 
 	@Override
 	public void reduceProductStock(ItemDto itemDto) {
-		boolean canReduce = false;
-
-		if (itemDto.getInventoryId() != null) {
-			InventoryDto inventoryDto = inventoryServiceProxy.getInventoryById(itemDto.getInventoryId());
-			if (inventoryDto.getVendorInventory() != null
-					&& inventoryDto.getVendorInventory() >= itemDto.getQuantity()) {
-				int quantity = inventoryDto.getVendorInventory() - itemDto.getQuantity();
-				inventoryDto.setVendorInventory(quantity);
-				inventoryServiceProxy.updateInventory(inventoryDto.getId(), inventoryDto);
-				canReduce = true;
-			}
-		}
-
-		if (!canReduce) {
-			List<InventoryDto> inventoryList = inventoryServiceProxy.getInventoryByProductId(itemDto.getProductId());
-
-			for (InventoryDto inventoryDto : inventoryList) {
-				if (inventoryDto.getVendorInventory() != null
-						&& inventoryDto.getVendorInventory() >= itemDto.getQuantity()) {
-					int quantity = inventoryDto.getVendorInventory() - itemDto.getQuantity();
-					inventoryDto.setVendorInventory(quantity);
-					inventoryServiceProxy.updateInventory(inventoryDto.getId(), inventoryDto);
-
-					itemDto.setInventoryId(inventoryDto.getId());
-					updateItem(itemDto.getId(), itemDto);
+		reduceProductStock(itemDto, itemDto.getQuantity());
+	}
 
-					canReduce = true;
-					break;
-				}
-			}
+	/**
+	 * Takes the extra units of a grown item from the inventory that holds the rest
+	 * of it. Taking them from another inventory would leave the item recorded
+	 * against one inventory while its stock is split over two, so the resize fails
+	 * instead.
+	 */
+	private void reserveAdditionalStock(ItemDto itemDto, int quantity) {
+		if (itemDto.getInventoryId() == null) {
+			reduceProductStock(itemDto, quantity);
+			return;
 		}
+
+		if (inventoryServiceProxy.reserveInventory(itemDto.getInventoryId(), quantity) == null)
+			throw new EcommerceException("product-not-available", "Inventory with id: " + itemDto.getInventoryId()
+					+ " does not have " + quantity + " more units of product id: " + itemDto.getProductId()
+					+ ", Hence the item cannot be resized.", HttpStatus.NOT_FOUND);
 	}
 
+	/**
+	 * Reserves the quantity with a single conditional decrement on the inventory
+	 * service, preferring the inventory the item is already tied to. The inventory
+	 * it was taken from is recorded on the item, and the caller persists it.
+	 */
 	private void reduceProductStock(ItemDto itemDto, int quantity) {
-		boolean canReduce = false;
-
-		if (itemDto.getInventoryId() != null) {
-			InventoryDto inventoryDto = inventoryServiceProxy.getInventoryById(itemDto.getInventoryId());
-			if (inventoryDto.getVendorInventory() != null && inventoryDto.getVendorInventory() >= quantity) {
-				int quant = inventoryDto.getVendorInventory() - quantity;
-				inventoryDto.setVendorInventory(quant);
-				inventoryServiceProxy.updateInventory(inventoryDto.getId(), inventoryDto);
-				canReduce = true;
-			}
-		}
+		InventoryDto reservedInventory = null;
 
-		if (!canReduce) {
-			List<InventoryDto> inventoryList = inventoryServiceProxy.getInventoryByProductId(itemDto.getProductId());
+		if (itemDto.getInventoryId() != null)
+			reservedInventory = inventoryServiceProxy.reserveInventory(itemDto.getInventoryId(), quantity);
 
-			for (InventoryDto inventoryDto : inventoryList) {
-				if (inventoryDto.getVendorInventory() != null && inventoryDto.getVendorInventory() >= quantity) {
-					int quant = inventoryDto.getVendorInventory() - quantity;
-					inventoryDto.setVendorInventory(quant);
-					inventoryServiceProxy.updateInventory(inventoryDto.getId(), inventoryDto);
+		if (reservedInventory == null) {
+			reservedInventory = inventoryServiceProxy.reserveProductInventory(itemDto.getProductId(), quantity);
 
-					itemDto.setInventoryId(inventoryDto.getId());
-					updateItem(itemDto.getId(), itemDto);
+			if (reservedInventory == null)
+				throw new EcommerceException("product-not-available", "Product with id: " + itemDto.getProductId()
+						+ " does not have " + quantity + " units left in any inventory.", HttpStatus.NOT_FOUND);
 
-					canReduce = true;
-					break;
-				}
-			}
+			itemDto.setInventoryId(reservedInventory.getId());
 		}
 	}
 
@@ -0,0 +1,238 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.model.BulkOrderResponseDto;
+import com.ecommerce.orderservice.model.BulkOrderResultDto;
+import com.ecommerce.orderservice.model.InventoryDto;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.ProductDto;
+import com.ecommerce.orderservice.resilience.RequestDeadline;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Imports orders from a JSON array or newline delimited JSON while the request
+ * body is read. Records are handled in chunks: the stock of every product in a
+ * chunk is fetched with one bulk call per downstream service, each order is
+ * checked against what is left after the orders before it, and the accepted
+ * orders are saved as pending in one batched transaction. Their stock is then
+ * reserved by the {@link OrderSaga}.
+ */
+@Component
+public class OrderBulkImporter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OrderBulkImporter.class);
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private Validator validator;
+
+	@Autowired
+	private ProductServiceProxy productServiceProxy;
+
+	@Autowired
+	private InventoryServiceProxy inventoryServiceProxy;
+
+	@Autowired
+	private OrderSaga orderSaga;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${order.bulk.chunk-size:500}")
+	private int chunkSize;
+
+	@Value("${order.bulk.chunk-timeout-ms:10000}")
+	private long chunkTimeoutMs;
+
+	public BulkOrderResponseDto importOrders(InputStream inputStream) throws IOException {
+		BulkOrderResponseDto response = new BulkOrderResponseDto(0, 0, new ArrayList<>());
+		Map<Integer, OrderDto> chunk = new LinkedHashMap<>();
+		int index = 0;
+
+		try (MappingIterator<OrderDto> records = objectMapper.readerFor(OrderDto.class).readValues(inputStream)) {
+			while (records.hasNextValue()) {
+				chunk.put(index++, records.nextValue());
+				if (chunk.size() == chunkSize) {
+					importChunk(chunk, response);
+					chunk.clear();
+				}
+			}
+		} catch (JsonProcessingException e) {
+			// The stream cannot be resynchronised after a malformed record, so the import
+			// stops there. Chunks already imported stay imported.
+			importChunk(chunk, response);
+			reject(response, index, "malformed-record",
+					"Record could not be read, the remaining records were not imported: " + e.getOriginalMessage());
+			LOGGER.warn("Bulk order import stopped at record {}: {}", index, e.getOriginalMessage());
+			return response;
+		}
+
+		importChunk(chunk, response);
+		LOGGER.info("Bulk order import finished, accepted: {}, rejected: {}", response.getAccepted(),
+				response.getRejected());
+		return response;
+	}
+
+	private void importChunk(Map<Integer, OrderDto> chunk, BulkOrderResponseDto response) {
+		if (chunk.isEmpty())
+			return;
+
+		Map<Integer, BulkOrderResultDto> results = new HashMap<>();
+		Map<Integer, OrderDto> validOrders = new LinkedHashMap<>();
+		chunk.forEach((index, order) -> {
+			String violations = violationsOf(order);
+			if (violations == null)
+				validOrders.put(index, order);
+			else
+				results.put(index, rejection(index, "invalid-order", violations));
+		});
+
+		Map<Integer, OrderDto> acceptedOrders = new LinkedHashMap<>();
+		try {
+			// A large import outlives the request deadline, so every chunk gets its own
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(chunkTimeoutMs);
+			RequestDeadline.callWith(deadline, () -> {
+				checkStock(validOrders, acceptedOrders, results);
+				return null;
+			});
+		} catch (EcommerceException e) {
+			validOrders.keySet()
+					.forEach(index -> results.put(index, rejection(index, e.getErrorCode(), e.getMessage())));
+			acceptedOrders.clear();
+		}
+
+		if (!acceptedOrders.isEmpty()) {
+			List<Integer> indexes = new ArrayList<>(acceptedOrders.keySet());
+			List<OrderDto> savedOrders = orderSaga.placeOrders(new ArrayList<>(acceptedOrders.values()));
+			for (int i = 0; i < indexes.size(); i++) {
+				OrderDto savedOrder = savedOrders.get(i);
+				results.put(indexes.get(i),
+						new BulkOrderResultDto(indexes.get(i), savedOrder.getId(), savedOrder.getStatus(), null, null));
+			}
+		}
+
+		chunk.keySet().forEach(index -> {
+			BulkOrderResultDto result = results.get(index);
+			response.getResults().add(result);
+			if (result.getOrderId() != null)
+				response.setAccepted(response.getAccepted() + 1);
+			else
+				response.setRejected(response.getRejected() + 1);
+		});
+
+		meterRegistry.counter("orders.bulk", "outcome", "accepted").increment(acceptedOrders.size());
+		meterRegistry.counter("orders.bulk", "outcome", "rejected").increment(chunk.size() - acceptedOrders.size());
+	}
+
+	/**
+	 * Checks every order of the chunk against the stock left once the orders
+	 * before it are taken out, per product and per pinned inventory. An order is
+	 * accepted as a whole or not at all.
+	 */
+	private void checkStock(Map<Integer, OrderDto> orders, Map<Integer, OrderDto> acceptedOrders,
+			Map<Integer, BulkOrderResultDto> results) {
+		if (orders.isEmpty())
+			return;
+
+		Set<Long> productIds = orders.values().stream().flatMap(order -> order.getItems().stream())
+				.map(ItemDto::getProductId).collect(Collectors.toCollection(LinkedHashSet::new));
+		Map<Long, ProductDto> products = productServiceProxy.getProductsByIds(productIds);
+		Map<Long, List<InventoryDto>> inventories = inventoryServiceProxy.getInventoryByProductIds(productIds);
+
+		Map<Long, Integer> productStock = new HashMap<>();
+		Map<Long, Integer> inventoryStock = new HashMap<>();
+		for (Long productId : productIds) {
+			List<InventoryDto> inventoryList = inventories.getOrDefault(productId, Collections.emptyList());
+			productStock.put(productId, StockAvailability.totalStock(inventoryList));
+			inventoryList.stream().filter(inventory -> inventory.getVendorInventory() != null)
+					.forEach(inventory -> inventoryStock.put(inventory.getId(), inventory.getVendorInventory()));
+		}
+
+		orders.forEach((index, order) -> {
+			try {
+				Map<Long, Integer> productDemand = new HashMap<>();
+				Map<Long, Integer> inventoryDemand = new HashMap<>();
+
+				for (ItemDto item : order.getItems()) {
+					StockAvailability.checkProductFound(item, products.get(item.getProductId()));
+					productDemand.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+
+					if (item.getInventoryId() != null) {
+						if (!inventoryStock.containsKey(item.getInventoryId()))
+							throw new EcommerceException("inventory-not-found", "Inventory with id = "
+									+ item.getInventoryId() + " not found for product id: " + item.getProductId(),
+									HttpStatus.NOT_FOUND);
+						inventoryDemand.merge(item.getInventoryId(), item.getQuantity(), Integer::sum);
+					}
+				}
+
+				productDemand.forEach((productId, quantity) -> StockAvailability
+						.checkStock(new ItemDto(null, quantity, null, productId, null), productStock.get(productId)));
+				inventoryDemand.forEach((inventoryId, quantity) -> {
+					Long productId = order.getItems().stream()
+							.filter(item -> inventoryId.equals(item.getInventoryId())).findAny().get().getProductId();
+					StockAvailability.checkStock(new ItemDto(null, quantity, null, productId, inventoryId),
+							inventoryStock.get(inventoryId));
+				});
+
+				productDemand.forEach((productId, quantity) -> productStock.merge(productId, -quantity, Integer::sum));
+				inventoryDemand
+						.forEach((inventoryId, quantity) -> inventoryStock.merge(inventoryId, -quantity, Integer::sum));
+				acceptedOrders.put(index, order);
+			} catch (EcommerceException e) {
+				results.put(index, rejection(index, e.getErrorCode(), e.getMessage()));
+			}
+		});
+	}
+
+	private String violationsOf(OrderDto order) {
+		if (order == null)
+			return "Record is empty.";
+
+		Set<ConstraintViolation<OrderDto>> violations = validator.validate(order);
+		if (violations.isEmpty())
+			return null;
+
+		return violations.stream().map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+				.sorted().collect(Collectors.joining(", "));
+	}
+
+	private static void reject(BulkOrderResponseDto response, int index, String errorCode, String message) {
+		response.getResults().add(rejection(index, errorCode, message));
+		response.setRejected(response.getRejected() + 1);
+	}
+
+	private static BulkOrderResultDto rejection(int index, String errorCode, String message) {
+		return new BulkOrderResultDto(index, null, null, errorCode, message);
+	}
+}
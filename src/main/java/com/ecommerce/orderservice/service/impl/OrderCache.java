@@ -0,0 +1,145 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.orderservice.model.OrderDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read model of fully assembled orders, keyed by order id. Eviction is
+ * frequency based and bounded by an estimate of the memory the entries hold.
+ * When serialization is enabled every entry also keeps its JSON, so that a hit
+ * can be written out without Jackson.
+ *
+ * Cached orders are shared between callers and must not be modified. Writers
+ * invalidate the order once their change is committed.
+ */
+@Component
+public class OrderCache {
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${order.cache.enabled:true}")
+	private boolean enabled;
+
+	@Value("${order.cache.max-memory-bytes:33554432}")
+	private long maxMemoryBytes;
+
+	@Value("${order.cache.ttl-seconds:300}")
+	private long ttlSeconds;
+
+	@Value("${order.cache.serialized:true}")
+	private boolean serialized;
+
+	private Cache<Long, CachedOrder> cache;
+
+	@PostConstruct
+	public void initOrderCache() {
+		cache = Caffeine.newBuilder().maximumWeight(maxMemoryBytes)
+				.weigher((Long orderId, CachedOrder order) -> (int) Math.min(Integer.MAX_VALUE, order.size))
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).recordStats().build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, "orderCache");
+		Gauge.builder("orders.cache.hit.ratio", cache, c -> c.stats().hitRate())
+				.description("Share of order reads served from the cache").register(meterRegistry);
+		Gauge.builder("orders.cache.memory", cache,
+				c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+				.description("Estimated memory held by cached orders").baseUnit("bytes").register(meterRegistry);
+	}
+
+	/**
+	 * Returns the order, loading it on a miss. Orders that are not found are not
+	 * cached.
+	 */
+	public OrderDto get(long orderId, LongFunction<OrderDto> loader) {
+		CachedOrder order = lookup(orderId, loader);
+		return (order == null) ? null : order.order;
+	}
+
+	/**
+	 * Returns the order as JSON, loading it on a miss.
+	 */
+	public byte[] getJson(long orderId, LongFunction<OrderDto> loader) {
+		CachedOrder order = lookup(orderId, loader);
+		if (order == null)
+			return null;
+
+		return (order.json != null) ? order.json : toJson(order.order);
+	}
+
+	public OrderDto getIfPresent(long orderId) {
+		CachedOrder order = cache.getIfPresent(orderId);
+		return (order == null) ? null : order.order;
+	}
+
+	public void put(OrderDto order) {
+		if (enabled && order != null && order.getId() != null)
+			cache.put(order.getId(), cachedOrder(order));
+	}
+
+	public void invalidate(Long orderId) {
+		if (orderId != null)
+			cache.invalidate(orderId);
+	}
+
+	private CachedOrder lookup(long orderId, LongFunction<OrderDto> loader) {
+		if (!enabled) {
+			OrderDto order = loader.apply(orderId);
+			return (order == null) ? null : new CachedOrder(order, null, 0);
+		}
+
+		return cache.get(orderId, id -> {
+			OrderDto order = loader.apply(id);
+			return (order == null) ? null : cachedOrder(order);
+		});
+	}
+
+	private CachedOrder cachedOrder(OrderDto order) {
+		byte[] json = serialized ? toJson(order) : null;
+		int itemCount = (order.getItems() == null) ? 0 : order.getItems().size();
+		long size = 192 + 112L * itemCount + ((json == null) ? 0 : 16 + json.length);
+		return new CachedOrder(order, json, size);
+	}
+
+	private byte[] toJson(OrderDto order) {
+		try {
+			return objectMapper.writeValueAsBytes(order);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static final class CachedOrder {
+
+		private final OrderDto order;
+
+		private final byte[] json;
+
+		private final long size;
+
+		private CachedOrder(OrderDto order, byte[] json, long size) {
+			this.order = order;
+			this.json = json;
+			this.size = size;
+		}
+	}
+}
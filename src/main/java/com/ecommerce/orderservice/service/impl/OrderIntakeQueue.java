@@ -0,0 +1,89 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.ecommerce.orderservice.model.OrderDto;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Accepts orders for asynchronous processing. An order is stored as PENDING
+ * and its stock reserved on the bounded order worker pool. When every worker
+ * is busy and the queue is full, new orders are refused before anything is
+ * stored, so the caller can back off.
+ */
+@Component
+public class OrderIntakeQueue {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OrderIntakeQueue.class);
+
+	@Autowired
+	private OrderSaga orderSaga;
+
+	@Autowired
+	private ThreadPoolTaskExecutor orderTaskExecutor;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${order.async.workers:8}")
+	private int workers;
+
+	@Value("${order.async.queue-capacity:1000}")
+	private int queueCapacity;
+
+	private Semaphore slots;
+
+	@PostConstruct
+	public void initSlots() {
+		slots = new Semaphore(workers + queueCapacity);
+		Gauge.builder("orders.intake.queued", slots,
+				available -> workers + queueCapacity - available.availablePermits()).register(meterRegistry);
+	}
+
+	/**
+	 * Returns the pending order, or null when the queue is full.
+	 */
+	public OrderDto submit(OrderDto orderDto) {
+		if (!slots.tryAcquire()) {
+			meterRegistry.counter("orders.intake", "outcome", "rejected").increment();
+			return null;
+		}
+
+		OrderDto pendingOrder;
+		try {
+			pendingOrder = orderSaga.placeOrder(orderDto);
+		} catch (RuntimeException e) {
+			slots.release();
+			throw e;
+		}
+
+		try {
+			orderTaskExecutor.execute(() -> {
+				try {
+					orderSaga.reserveOrder(pendingOrder.getId());
+				} finally {
+					slots.release();
+				}
+			});
+		} catch (TaskRejectedException e) {
+			// The order is stored already, the saga dispatcher reserves it instead
+			LOGGER.warn("Order id: {} left to the saga dispatcher: {}", pendingOrder.getId(), e.getMessage());
+			slots.release();
+		}
+
+		meterRegistry.counter("orders.intake", "outcome", "accepted").increment();
+		return pendingOrder;
+	}
+}
@@ -0,0 +1,334 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecommerce.orderservice.entity.Item;
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.entity.OutboxEvent;
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.model.OutboxStatus;
+import com.ecommerce.orderservice.repository.ItemRepository;
+import com.ecommerce.orderservice.repository.OrderRepository;
+import com.ecommerce.orderservice.repository.OutboxEventRepository;
+import com.ecommerce.orderservice.service.ItemService;
+import com.ecommerce.orderservice.util.ConcurrencyUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Saga that reserves stock for orders after they are accepted. An order is
+ * stored as PENDING together with one outbox event per item in a single local
+ * transaction, and the dispatcher then reserves the stock in the background.
+ * The items of an order are reserved concurrently. An order whose stock is all
+ * reserved moves to PROCESSING. Otherwise whatever was reserved is released
+ * again and the order is REJECTED, or retried with exponential backoff when the
+ * failure was transient.
+ *
+ * An order is claimed by moving its events to IN_PROGRESS in the database, so
+ * that only one dispatcher or intake worker, in this or another instance,
+ * reserves it. Events are delivered at least once: if the service stops between
+ * claiming an order and recording the outcome, the claim times out and the
+ * reservation is sent again.
+ */
+@Service
+public class OrderSaga {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OrderSaga.class);
+
+	private static final int MAX_ERROR_LENGTH = 255;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ItemRepository itemRepository;
+
+	@Autowired
+	private OutboxEventRepository outboxEventRepository;
+
+	@Autowired
+	private ItemService itemService;
+
+	@Autowired
+	private OrderMapper mapper;
+
+	@Autowired
+	private OrderCache orderCache;
+
+	@Autowired
+	private ThreadPoolTaskExecutor proxyTaskExecutor;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${order.saga.batch-size:100}")
+	private int batchSize;
+
+	@Value("${order.saga.max-attempts:5}")
+	private int maxAttempts;
+
+	@Value("${order.saga.initial-backoff-ms:1000}")
+	private long initialBackoffMs;
+
+	@Value("${order.saga.max-backoff-ms:60000}")
+	private long maxBackoffMs;
+
+	@Value("${order.saga.claim-timeout-ms:300000}")
+	private long claimTimeoutMs;
+
+	@Transactional
+	public OrderDto placeOrder(OrderDto orderDto) {
+		orderDto.setStatus(OrderStatus.PENDING);
+		Order order = orderRepository.save(mapper.toEntity(orderDto));
+		outboxEventRepository.saveAll(eventsOf(order, LocalDateTime.now()));
+
+		return mapper.toDto(order);
+	}
+
+	/**
+	 * Stores a batch of orders as pending in one transaction. Ids come from
+	 * sequences, so Hibernate can batch the inserts of all orders, items and
+	 * events instead of running them one at a time.
+	 */
+	@Transactional
+	public List<OrderDto> placeOrders(List<OrderDto> orderDtos) {
+		List<Order> orders = orderDtos.stream().map(orderDto -> {
+			orderDto.setStatus(OrderStatus.PENDING);
+			return mapper.toEntity(orderDto);
+		}).collect(Collectors.toList());
+		orders = orderRepository.saveAll(orders);
+
+		LocalDateTime now = LocalDateTime.now();
+		outboxEventRepository.saveAll(orders.stream().flatMap(order -> eventsOf(order, now).stream())
+				.collect(Collectors.toList()));
+
+		return orders.stream().map(mapper::toDto).collect(Collectors.toList());
+	}
+
+	private static List<OutboxEvent> eventsOf(Order order, LocalDateTime now) {
+		return order.getItems().stream()
+				.map(item -> new OutboxEvent(null, order.getId(), item.getId(), item.getProductId(),
+						item.getInventoryId(), item.getQuantity(), OutboxStatus.PENDING, 0, now, null, null, null))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Takes the oldest pending orders that are due and runs their reservations
+	 * concurrently. Orders submitted through the async intake are normally
+	 * reserved by its workers already, this picks up retries, timed out claims and
+	 * anything they did not get to. No transaction is held while the inventory
+	 * service is called.
+	 */
+	@Scheduled(fixedDelayString = "${order.saga.dispatch-interval-ms:500}")
+	public void dispatch() {
+		LocalDateTime claimedBefore = LocalDateTime.now().minus(claimTimeoutMs, ChronoUnit.MILLIS);
+		Integer staleClaims = transactionTemplate.execute(status -> outboxEventRepository
+				.releaseStaleClaims(OutboxStatus.IN_PROGRESS, OutboxStatus.PENDING, claimedBefore));
+		if (staleClaims != null && staleClaims > 0)
+			LOGGER.warn("Released {} outbox events claimed before {}", staleClaims, claimedBefore);
+
+		List<Long> orderIds = outboxEventRepository.findOrderIdsByStatus(OutboxStatus.PENDING, LocalDateTime.now(),
+				PageRequest.of(0, batchSize));
+		if (orderIds.isEmpty())
+			return;
+
+		CompletableFuture<?>[] sagas = orderIds.stream().map(this::reserveOrderAsync)
+				.toArray(CompletableFuture[]::new);
+		CompletableFuture.allOf(sagas).join();
+	}
+
+	/**
+	 * Reserves the stock of one pending order, unless another thread or instance
+	 * has claimed it already, so the dispatcher and the async intake never reserve
+	 * the same order twice.
+	 */
+	public void reserveOrder(Long orderId) {
+		try {
+			reserveOrderAsync(orderId).join();
+		} catch (CompletionException e) {
+			throw ConcurrencyUtils.unwrap(e);
+		}
+	}
+
+	/**
+	 * Completes once the outcome of the order is recorded. Its reservations run as
+	 * tasks on the proxy pool, and no pool thread waits for another one.
+	 */
+	private CompletableFuture<Void> reserveOrderAsync(Long orderId) {
+		Integer claimed = transactionTemplate.execute(status -> outboxEventRepository.claim(orderId,
+				OutboxStatus.PENDING, OutboxStatus.IN_PROGRESS, LocalDateTime.now()));
+		if (claimed == null || claimed == 0)
+			return CompletableFuture.completedFuture(null);
+
+		List<OutboxEvent> events = outboxEventRepository.findByOrderIdAndStatusOrderById(orderId,
+				OutboxStatus.IN_PROGRESS);
+		return events.isEmpty() ? CompletableFuture.completedFuture(null) : reserve(orderId, events);
+	}
+
+	/**
+	 * Reserves the items concurrently. Once one reservation fails no further ones
+	 * are started, and the outcome is only recorded when all that did start have
+	 * completed, so that every successful one is released.
+	 */
+	private CompletableFuture<Void> reserve(Long orderId, List<OutboxEvent> events) {
+		AtomicBoolean failed = new AtomicBoolean();
+		List<ItemDto> reservedItems = Collections.synchronizedList(new ArrayList<>());
+
+		CompletableFuture<?>[] reservations = events.stream().map(event -> CompletableFuture.runAsync(() -> {
+			if (failed.get())
+				return;
+
+			ItemDto itemDto = new ItemDto(event.getItemId(), event.getQuantity(), null, event.getProductId(),
+					event.getInventoryId());
+			try {
+				itemService.reduceProductStock(itemDto);
+				reservedItems.add(itemDto);
+			} catch (RuntimeException e) {
+				failed.set(true);
+				throw e;
+			}
+		}, proxyTaskExecutor)).toArray(CompletableFuture[]::new);
+
+		return CompletableFuture.allOf(reservations).handle((result, e) -> {
+			List<ItemDto> items = new ArrayList<>(reservedItems);
+			if (e == null)
+				recordReserved(orderId, events, items);
+			else
+				recordFailed(orderId, events, items, ConcurrencyUtils.unwrap(e));
+			return null;
+		});
+	}
+
+	private void recordReserved(Long orderId, List<OutboxEvent> events, List<ItemDto> reservedItems) {
+		try {
+			complete(orderId, events, reservedItems, OrderStatus.PROCESSING, OutboxStatus.SENT, null);
+			meterRegistry.counter("orders.saga", "outcome", "reserved").increment();
+		} catch (RuntimeException e) {
+			LOGGER.error("Could not record reservations of order id: {}, releasing them", orderId, e);
+			release(reservedItems);
+		}
+	}
+
+	private void recordFailed(Long orderId, List<OutboxEvent> events, List<ItemDto> reservedItems,
+			RuntimeException e) {
+		release(reservedItems);
+
+		int attempts = events.get(0).getAttempts() + 1;
+		if (isPermanent(e) || attempts >= maxAttempts) {
+			LOGGER.warn("Rejecting order id: {}, stock could not be reserved: {}", orderId, e.getMessage());
+			complete(orderId, events, null, OrderStatus.REJECTED, OutboxStatus.FAILED, errorOf(e));
+			meterRegistry.counter("orders.saga", "outcome", "rejected").increment();
+			return;
+		}
+
+		LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoffMillis(attempts), ChronoUnit.MILLIS);
+		LOGGER.info("Reservation for order id: {} failed, retrying at {}: {}", orderId, nextAttemptAt,
+				e.getMessage());
+		transactionTemplate.executeWithoutResult(status -> {
+			events.forEach(event -> {
+				event.setStatus(OutboxStatus.PENDING);
+				event.setClaimedAt(null);
+				event.setAttempts(attempts);
+				event.setNextAttemptAt(nextAttemptAt);
+				event.setLastError(errorOf(e));
+			});
+			outboxEventRepository.saveAll(events);
+		});
+		meterRegistry.counter("orders.saga", "outcome", "retried").increment();
+	}
+
+	/**
+	 * Exponential backoff with equal jitter, so that orders that failed together
+	 * are not all retried in the same run.
+	 */
+	private long backoffMillis(int attempt) {
+		long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+		return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+	}
+
+	/**
+	 * Records the outcome in one local transaction. Items remember the inventory
+	 * their stock was taken from, so that it can be released later.
+	 */
+	private void complete(Long orderId, List<OutboxEvent> events, List<ItemDto> reservedItems,
+			OrderStatus orderStatus, OutboxStatus eventStatus, String error) {
+		transactionTemplate.executeWithoutResult(status -> {
+			orderRepository.findById(orderId).filter(order -> order.getStatus() == OrderStatus.PENDING)
+					.ifPresent(order -> order.setStatus(orderStatus));
+
+			if (reservedItems != null) {
+				Map<Long, Item> items = itemRepository
+						.findAllById(reservedItems.stream().map(ItemDto::getId).collect(Collectors.toList())).stream()
+						.collect(Collectors.toMap(Item::getId, Function.identity()));
+				reservedItems.forEach(itemDto -> {
+					Item item = items.get(itemDto.getId());
+					if (item != null)
+						item.setInventoryId(itemDto.getInventoryId());
+				});
+			}
+
+			events.forEach(event -> {
+				event.setStatus(eventStatus);
+				event.setClaimedAt(null);
+				event.setLastError(error);
+			});
+			outboxEventRepository.saveAll(events);
+		});
+		orderCache.invalidate(orderId);
+	}
+
+	private void release(List<ItemDto> reservedItems) {
+		for (ItemDto itemDto : reservedItems) {
+			try {
+				itemService.increaseProductStock(itemDto);
+			} catch (RuntimeException releaseException) {
+				LOGGER.error("Could not release stock of product id: {} from inventory id: {}",
+						itemDto.getProductId(), itemDto.getInventoryId(), releaseException);
+			}
+		}
+	}
+
+	private static String errorOf(RuntimeException e) {
+		String error = String.valueOf(e.getMessage());
+		return (error.length() <= MAX_ERROR_LENGTH) ? error : error.substring(0, MAX_ERROR_LENGTH);
+	}
+
+	/**
+	 * Client errors such as missing stock will not go away on retry, conflicts
+	 * and downstream failures may.
+	 */
+	private static boolean isPermanent(RuntimeException e) {
+		return e instanceof EcommerceException && ((EcommerceException) e).getHttpStatus().is4xxClientError()
+				&& ((EcommerceException) e).getHttpStatus() != HttpStatus.CONFLICT;
+	}
+}
@@ -1,34 +1,63 @@
 package com.ecommerce.orderservice.service.impl;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import com.ecommerce.orderservice.entity.Item;
 import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.mapper.OrderMapper;
 import com.ecommerce.orderservice.repository.OrderRepository;
 import com.ecommerce.orderservice.service.ItemService;
 import com.ecommerce.orderservice.service.OrderService;
 import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.model.BulkOrderResponseDto;
 import com.ecommerce.orderservice.model.InventoryDto;
 import com.ecommerce.orderservice.model.ItemDto;
 import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.OrderFilter;
+import com.ecommerce.orderservice.model.OrderPageDto;
 import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.model.OrderSummaryDto;
+import com.ecommerce.orderservice.model.OrderSummaryPageDto;
 import com.ecommerce.orderservice.model.ProductDto;
+import com.ecommerce.orderservice.util.ConcurrencyUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.annotation.Timed;
 
 @Service
 public class OrderServiceImpl implements OrderService {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(OrderService.class);
 
+	private static final String SAGA_MODE = "saga";
+
 	@Autowired
 	private OrderRepository orderRepository;
 
@@ -36,7 +65,7 @@ public class OrderServiceImpl implements OrderService {
 	private ItemService itemService;
 
 	@Autowired
-	private ModelMapper mapper;
+	private OrderMapper mapper;
 
 	@Autowired
 	private ProductServiceProxy productServiceProxy;
@@ -44,24 +73,128 @@ public class OrderServiceImpl implements OrderService {
 	@Autowired
 	private InventoryServiceProxy inventoryServiceProxy;
 
+	@Autowired
+	private ThreadPoolTaskExecutor proxyTaskExecutor;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private OrderSaga orderSaga;
+
+	@Autowired
+	private OrderIntakeQueue orderIntakeQueue;
+
+	@Autowired
+	private OrderBulkImporter orderBulkImporter;
+
+	@Autowired
+	private OrderCache orderCache;
+
+	@Autowired
+	private OrderUpdateEngine orderUpdateEngine;
+
+	@Value("${order.create.mode:sync}")
+	private String createMode;
+
+	@Value("${order.export.chunk-size:500}")
+	private int exportChunkSize;
+
 	@Override
-	public List<OrderDto> getAllOrders() {
+	public OrderDto getOrderById(long id) {
+		return orderCache.get(id, this::loadOrder);
+	}
+
+	@Override
+	public byte[] getOrderJsonById(long id) {
+		return orderCache.getJson(id, this::loadOrder);
+	}
+
+	private OrderDto loadOrder(long id) {
+		Optional<Order> order = orderRepository.findWithItemsById(id);
+		return (order.isPresent() ? mapper.toDto(order.get()) : null);
+	}
+
+	@Override
+	public List<OrderSummaryDto> getOrderSummaries(Long afterId, int limit) {
+		return orderRepository.findSummariesAfter((afterId == null) ? 0L : afterId, PageRequest.of(0, limit));
+	}
+
+	@Override
+	public OrderPageDto getOrders(OrderFilter filter, Long afterId, int limit) {
+		List<Long> ids = orderRepository.findPageIds((afterId == null) ? 0L : afterId, filter.getUserId(),
+				filter.getStatus(), filter.getFromDate(), filter.getToDate(), PageRequest.of(0, limit));
+
 		List<OrderDto> orders = new ArrayList<>();
-		orderRepository.findAll().forEach(order -> {
-			orders.add(mapper.map(order, OrderDto.class));
-		});
-		return orders;
+		if (!ids.isEmpty()) {
+			orderRepository.findAllWithItemsByIdIn(ids).forEach(order -> {
+				orders.add(mapper.toDto(order));
+			});
+		}
+
+		Long nextCursor = (ids.size() == limit) ? ids.get(ids.size() - 1) : null;
+		return new OrderPageDto(orders, nextCursor);
 	}
 
+	/**
+	 * Same pages as {@link #getOrders}, read from the orders table alone.
+	 */
 	@Override
-	public OrderDto getOrderById(long id) {
-		Optional<Order> order = orderRepository.findById(id);
-		return (order.isPresent() ? mapper.map(order.get(), OrderDto.class) : null);
+	public OrderSummaryPageDto getOrderSummaries(OrderFilter filter, Long afterId, int limit) {
+		List<Long> ids = orderRepository.findPageIds((afterId == null) ? 0L : afterId, filter.getUserId(),
+				filter.getStatus(), filter.getFromDate(), filter.getToDate(), PageRequest.of(0, limit));
+
+		List<OrderSummaryDto> orders = ids.isEmpty() ? Collections.emptyList()
+				: orderRepository.findSummariesByIdIn(ids);
+
+		Long nextCursor = (ids.size() == limit) ? ids.get(ids.size() - 1) : null;
+		return new OrderSummaryPageDto(orders, nextCursor);
+	}
+
+	/**
+	 * Writes the matching orders as newline delimited JSON while they are read from
+	 * the database. Order ids come from a cursor and every chunk of them is loaded
+	 * with its items in one query, so the statements grow with the number of
+	 * chunks rather than orders. Each chunk is cleared from the persistence context
+	 * once written, so memory use does not grow with the number of orders.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public void exportOrders(OrderFilter filter, OutputStream outputStream) throws IOException {
+		try (Stream<Long> orderIds = orderRepository.streamIds(filter.getUserId(), filter.getStatus(),
+				filter.getFromDate(), filter.getToDate())) {
+			Iterator<Long> iterator = orderIds.iterator();
+			List<Long> chunk = new ArrayList<>(exportChunkSize);
+
+			while (iterator.hasNext()) {
+				chunk.add(iterator.next());
+				if (chunk.size() == exportChunkSize || !iterator.hasNext()) {
+					for (Order order : orderRepository.findAllWithItemsByIdIn(chunk)) {
+						outputStream.write(objectMapper.writeValueAsBytes(mapper.toDto(order)));
+						outputStream.write('\n');
+					}
+					entityManager.clear();
+					chunk.clear();
+				}
+			}
+		}
+		outputStream.flush();
 	}
 
 	@Override
+	@Timed(value = "orders.operations", extraTags = { "operation", "create" }, histogram = true)
 	public OrderDto createOrder(OrderDto orderDto) {
 
+		// Accept the order locally and reserve its stock in the background
+		if (SAGA_MODE.equalsIgnoreCase(createMode)) {
+			OrderDto pendingOrder = orderSaga.placeOrder(orderDto);
+			orderCache.put(pendingOrder);
+			return pendingOrder;
+		}
+
 		// Check if all the product are available in stock
 		checkProductStockAvailability(orderDto.getItems());
 
@@ -72,63 +205,46 @@ public class OrderServiceImpl implements OrderService {
 		// orderDto = createItems(orderDto);
 		
 		// Reduce the product quantity
-		for (ItemDto itemDto : orderDto.getItems()) {
-			itemService.reduceProductStock(itemDto);
-		}
+		reserveProductStock(orderDto.getItems());
 
-		Order order = mapper.map(orderDto, Order.class);
+		Order order = mapper.toEntity(orderDto);
 
-		return mapper.map(orderRepository.save(order), OrderDto.class);
+		OrderDto createdOrder = mapper.toDto(orderRepository.save(order));
+		orderCache.put(createdOrder);
+		return createdOrder;
 	}
 
 	@Override
-	public OrderDto updateOrder(long id, OrderDto orderDto) {
-
-		// Check if all products are available in stock
-		checkProductStockAvailability(orderDto.getItems());
-
-		// Check for customer information
-		// checkCustomer(orderDto.getUserId());
-
-		Optional<Order> updatedOrder = orderRepository.findById(id).map(existingOrder -> {
-
-			List<ItemDto> savedItems = new ArrayList<>();
-
-			// Create new items added to order
-			for (ItemDto itemDto : orderDto.getItems()) {
-				if (itemDto.getId() == null) {
-					savedItems.add(itemService.createItem(itemDto));
-				} else {
-					Item existingItem = existingOrder.getItems().stream().filter(x -> x.getId() == itemDto.getId())
-							.findAny().orElse(null);
-
-					if (existingItem == null || existingItem.getId() == null)
-						savedItems.add(itemService.createItem(itemDto));
-					else
-						savedItems.add(itemService.updateItem(itemDto.getId(), itemDto));
-				}
-
-			}
-
-			orderDto.setItems(savedItems);
+	@Timed(value = "orders.operations", extraTags = { "operation", "submit" }, histogram = true)
+	public OrderDto submitOrder(OrderDto orderDto) {
+		return orderIntakeQueue.submit(orderDto);
+	}
 
-			// Delete items that have been removed from order
-			for (Item item : existingOrder.getItems()) {
-				ItemDto existingItem = orderDto.getItems().stream().filter(x -> x.getId() == item.getId()).findAny()
-						.orElse(null);
+	@Override
+	@Timed(value = "orders.operations", extraTags = { "operation", "import" }, histogram = true)
+	public BulkOrderResponseDto importOrders(InputStream inputStream) throws IOException {
+		return orderBulkImporter.importOrders(inputStream);
+	}
 
-				if (existingItem != null && existingItem.getId() != null)
-					itemService.deleteItem(existingItem.getId());
-			}
+	@Override
+	public OrderStatus getOrderStatus(long id) {
+		OrderDto cachedOrder = orderCache.getIfPresent(id);
+		if (cachedOrder != null)
+			return cachedOrder.getStatus();
 
-			Order order = mapper.map(orderDto, Order.class);
-			return orderRepository.save(existingOrder.updateWith(order));
-		});
+		return orderRepository.findStatusById(id).orElse(null);
+	}
 
-		return (updatedOrder.isPresent() ? mapper.map(updatedOrder.get(), OrderDto.class) : null);
+	@Override
+	@Timed(value = "orders.operations", extraTags = { "operation", "update" }, histogram = true)
+	public OrderDto updateOrder(long id, OrderDto orderDto) {
+		OrderDto updatedOrder = orderUpdateEngine.update(id, orderDto);
+		orderCache.invalidate(id);
+		return updatedOrder;
 	}
 
 	@Override
+	@Timed(value = "orders.operations", extraTags = { "operation", "delete" }, histogram = true)
 	public void deleteOrder(long id) {
 
 		OrderDto orderDto = getOrderById(id);
@@ -138,49 +254,89 @@ public class OrderServiceImpl implements OrderService {
 					HttpStatus.NOT_FOUND);
 
 		// Do not delete an order if status is - INTRANSIT, PAYMENTDUE, PICKUPAVAILABLE,
-		// PROCESSING
+		// PROCESSING, PENDING
 		if (orderDto.getStatus().equals(OrderStatus.INTRANSIT) || orderDto.getStatus().equals(OrderStatus.PAYMENTDUE)
 				|| orderDto.getStatus().equals(OrderStatus.PICKUPAVAILABLE)
-				|| orderDto.getStatus().equals(OrderStatus.PROCESSING))
+				|| orderDto.getStatus().equals(OrderStatus.PROCESSING)
+				|| orderDto.getStatus().equals(OrderStatus.PENDING))
 			throw new EcommerceException("order-status-active", "Current Status of the Order with id = " + id + " is "
 					+ orderDto.getStatus() + ", Hence it cannot be deleted.", HttpStatus.NOT_FOUND);
 
-		// Remove the items in order before deleting the order
-		for (ItemDto itemDto : orderDto.getItems()) {
-			itemService.deleteItem(itemDto.getId());
+		// Remove the items in order before deleting the order. A rejected order never
+		// held any stock, its items are removed along with it.
+		if (!orderDto.getStatus().equals(OrderStatus.REJECTED)) {
+			for (ItemDto itemDto : orderDto.getItems()) {
+				itemService.deleteItem(itemDto.getId());
+			}
 		}
 
 		orderRepository.deleteById(id);
+		orderCache.invalidate(id);
 		LOGGER.info("Order deleted Successfully");
 	}
 
-	private void checkProductStockAvailability(List<ItemDto> items) {
+	/**
+	 * Reserves stock for every item concurrently, so the slowest item sets the
+	 * latency rather than the sum of all of them. If any reservation fails, items
+	 * that have not started are skipped and the ones already reserved are released
+	 * again before the failure is rethrown.
+	 */
+	private void reserveProductStock(List<ItemDto> items) {
+		AtomicBoolean failed = new AtomicBoolean();
+		List<ItemDto> reservedItems = Collections.synchronizedList(new ArrayList<>());
+
+		CompletableFuture<?>[] reservations = items.stream().map(itemDto -> CompletableFuture.runAsync(() -> {
+			if (failed.get())
+				return;
+
+			try {
+				itemService.reduceProductStock(itemDto);
+				reservedItems.add(itemDto);
+			} catch (RuntimeException e) {
+				failed.set(true);
+				throw e;
+			}
+		}, proxyTaskExecutor)).toArray(CompletableFuture[]::new);
+
+		try {
+			CompletableFuture.allOf(reservations).join();
+		} catch (CompletionException e) {
+			for (ItemDto itemDto : reservedItems) {
+				try {
+					itemService.increaseProductStock(itemDto);
+				} catch (RuntimeException releaseException) {
+					LOGGER.error("Could not release stock of product id: {} from inventory id: {}",
+							itemDto.getProductId(), itemDto.getInventoryId(), releaseException);
+				}
+			}
+			throw ConcurrencyUtils.unwrap(e);
+		}
+	}
+
+	// Package-private so that it can be benchmarked against stub proxies
+	void checkProductStockAvailability(List<ItemDto> items) {
+		// Fetch every product and its inventory for the whole cart up front
+		Set<Long> productIds = items.stream().map(ItemDto::getProductId)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+		Map<Long, ProductDto> products = productServiceProxy.getProductsByIds(productIds);
+		Map<Long, List<InventoryDto>> inventories = inventoryServiceProxy.getInventoryByProductIds(productIds);
+
 		for (ItemDto item : items) {
-			ProductDto product = productServiceProxy.getProductById(item.getProductId());
-			if (product == null || product.getId() == null)
-				throw new EcommerceException("product-not-found",
-						"Product with id = " + item.getProductId() + " not found.", HttpStatus.NOT_FOUND);
+			ProductDto product = products.get(item.getProductId());
+			StockAvailability.checkProductFound(item, product);
 
+			List<InventoryDto> inventoryList = inventories.getOrDefault(product.getId(), Collections.emptyList());
 			int availableStock = 0;
 
 			if (item.getInventoryId() != null) {
-				InventoryDto inventory = inventoryServiceProxy.getInventoryById(item.getInventoryId());
+				InventoryDto inventory = StockAvailability.findPinnedInventory(item, inventoryList)
+						.orElseGet(() -> inventoryServiceProxy.getInventoryById(item.getInventoryId()));
 				availableStock = inventory.getVendorInventory();
 			} else {
-				List<InventoryDto> inventoryList = inventoryServiceProxy.getInventoryByProductId(product.getId());
-				availableStock = inventoryList.stream().map(InventoryDto::getVendorInventory)
-						.collect(Collectors.summingInt(Integer::intValue));
+				availableStock = StockAvailability.totalStock(inventoryList);
 			}
 
-			if (availableStock == 0)
-				throw new EcommerceException("product-not-available",
-						"Product with id: " + item.getProductId() + " is/are not available in stock.",
-						HttpStatus.NOT_FOUND);
-
-			if (availableStock < item.getQuantity())
-				throw new EcommerceException("product-not-available", "Only " + availableStock
-						+ " units of product - id: " + item.getProductId() + " is/are available.",
-						HttpStatus.NOT_FOUND);
+			StockAvailability.checkStock(item, availableStock);
 		}
 	}
 
@@ -0,0 +1,212 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ecommerce.orderservice.entity.Item;
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.mapper.ItemMapper;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.model.InventoryAdjustmentDto;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.model.ProductDto;
+import com.ecommerce.orderservice.repository.ItemRepository;
+import com.ecommerce.orderservice.repository.OrderRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Updates an order by the difference between its stored and incoming items.
+ * Only added, removed and resized lines change stock, and all of their changes
+ * go to the inventory service as one batch. Lines whose quantity is unchanged
+ * are saved without any downstream call.
+ */
+@Component
+public class OrderUpdateEngine {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OrderUpdateEngine.class);
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ItemRepository itemRepository;
+
+	@Autowired
+	private OrderMapper mapper;
+
+	@Autowired
+	private ItemMapper itemMapper;
+
+	@Autowired
+	private ProductServiceProxy productServiceProxy;
+
+	@Autowired
+	private InventoryServiceProxy inventoryServiceProxy;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Returns the updated order, or null when there is no order with the id.
+	 */
+	public OrderDto update(long id, OrderDto orderDto) {
+		Order existingOrder = orderRepository.findWithItemsById(id).orElse(null);
+		if (existingOrder == null)
+			return null;
+
+		if (existingOrder.getStatus() == OrderStatus.PENDING)
+			throw new EcommerceException("order-pending",
+					"Stock for the Order with id = " + id + " is still being reserved, Hence it cannot be updated.",
+					HttpStatus.CONFLICT);
+
+		// A rejected order never held any stock, so there is nothing its items could
+		// be diffed against
+		if (existingOrder.getStatus() == OrderStatus.REJECTED)
+			throw new EcommerceException("order-rejected",
+					"The Order with id = " + id + " was rejected and holds no stock, Hence it cannot be updated.",
+					HttpStatus.CONFLICT);
+
+		OrderStatus status = statusOf(id, existingOrder, orderDto);
+		Long version = existingOrder.getVersion();
+
+		ItemDiff diff = ItemDiff.of(existingOrder.getItems(), orderDto.getItems());
+		checkProductsFound(diff.added());
+
+		List<InventoryAdjustmentDto> appliedAdjustments = inventoryServiceProxy.adjustInventories(diff.adjustments());
+		if (!diff.appliedToHeldInventories(appliedAdjustments)) {
+			// A grown line would hold its stock in two inventories but record only one
+			undo(id, appliedAdjustments);
+			throw new EcommerceException("product-not-available", "An inventory of the Order with id = " + id
+					+ " does not have enough units left for its resized items, Hence it cannot be updated.",
+					HttpStatus.NOT_FOUND);
+		}
+		diff.assignInventories(appliedAdjustments);
+		meterRegistry.counter("orders.update.lines", "change", "added").increment(diff.added().size());
+		meterRegistry.counter("orders.update.lines", "change", "removed").increment(diff.removed().size());
+		meterRegistry.counter("orders.update.lines", "change", "kept").increment(diff.kept().size());
+
+		try {
+			return transactionTemplate.execute(transaction -> save(id, orderDto, diff, status, version));
+		} catch (RuntimeException e) {
+			LOGGER.error("Could not save the update of order id: {}, undoing its stock changes", id, e);
+			undo(id, appliedAdjustments);
+			if (e instanceof OptimisticLockingFailureException)
+				throw concurrentlyModified(id);
+			throw e;
+		}
+	}
+
+	private void undo(long id, List<InventoryAdjustmentDto> appliedAdjustments) {
+		try {
+			inventoryServiceProxy.adjustInventories(ItemDiff.inverse(appliedAdjustments));
+		} catch (RuntimeException undoException) {
+			LOGGER.error("Could not undo the stock changes of order id: {}", id, undoException);
+		}
+	}
+
+	/**
+	 * The status the order moves to. It stays as it is when none is given. PENDING
+	 * and REJECTED belong to the stock reservation and cannot be set by a client.
+	 */
+	private static OrderStatus statusOf(long id, Order existingOrder, OrderDto orderDto) {
+		OrderStatus status = orderDto.getStatus();
+		if (status == null)
+			return existingOrder.getStatus();
+
+		if (status == OrderStatus.PENDING || status == OrderStatus.REJECTED)
+			throw new EcommerceException("order-status-invalid", "Status of the Order with id = " + id
+					+ " cannot be set to " + status + ", it is only set by the stock reservation.",
+					HttpStatus.BAD_REQUEST);
+		return status;
+	}
+
+	/**
+	 * Applies the update to the order as read when its stock changes were worked
+	 * out. If it changed since, the stock changes no longer match and the update
+	 * fails.
+	 */
+	private OrderDto save(long id, OrderDto orderDto, ItemDiff diff, OrderStatus status, Long version) {
+		Order order = orderRepository.findWithItemsById(id)
+				.orElseThrow(() -> new EcommerceException("order-not-found",
+						String.format("Order with id=%d not found", id), HttpStatus.NOT_FOUND));
+		if (!Objects.equals(order.getVersion(), version))
+			throw concurrentlyModified(id);
+		// Resizing kept lines changes only the items, the version moves on all the same
+		entityManager.lock(order, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+
+		Map<Long, Item> items = new HashMap<>();
+		order.getItems().forEach(item -> items.put(item.getId(), item));
+
+		diff.kept().forEach((itemId, itemDto) -> {
+			Item item = items.get(itemId);
+			item.setQuantity(itemDto.getQuantity());
+			item.setSubTotal(itemDto.getSubTotal());
+		});
+
+		Set<Long> removedIds = diff.removed().stream().map(Item::getId).collect(Collectors.toSet());
+		List<Item> removedItems = order.getItems().stream().filter(item -> removedIds.contains(item.getId()))
+				.collect(Collectors.toList());
+		order.getItems().removeIf(item -> removedIds.contains(item.getId()));
+		// Items cascade to their orders, so they are detached from it before the delete
+		removedItems.forEach(item -> item.setOrders(new ArrayList<>()));
+		itemRepository.deleteAll(removedItems);
+
+		for (ItemDto itemDto : diff.added()) {
+			Item item = itemMapper.toEntity(itemDto);
+			item.setId(null);
+			order.getItems().add(item);
+		}
+
+		order.updateItemCount();
+		order.setOrderedDate(orderDto.getOrderedDate());
+		order.setStatus(status);
+		order.setTotal(orderDto.getTotal());
+		order.setUserId(orderDto.getUserId());
+
+		return mapper.toDto(orderRepository.save(order));
+	}
+
+	private static EcommerceException concurrentlyModified(long id) {
+		return new EcommerceException("order-modified", "The Order with id = " + id
+				+ " was modified while it was being updated, Hence it was not updated. Please try again.",
+				HttpStatus.CONFLICT);
+	}
+
+	private void checkProductsFound(List<ItemDto> addedItems) {
+		if (addedItems.isEmpty())
+			return;
+
+		Set<Long> productIds = addedItems.stream().map(ItemDto::getProductId)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+		Map<Long, ProductDto> products = productServiceProxy.getProductsByIds(productIds);
+		addedItems.forEach(item -> StockAvailability.checkProductFound(item, products.get(item.getProductId())));
+	}
+}
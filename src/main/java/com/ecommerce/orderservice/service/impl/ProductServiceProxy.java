@@ -1,132 +1,321 @@
 package com.ecommerce.orderservice.service.impl;
 
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
 
-import org.apache.logging.log4j.ThreadContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.BufferingClientHttpRequestFactory;
-import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import com.ecommerce.orderservice.exception.EcommerceException;
 import com.ecommerce.orderservice.model.ProductDto;
+import com.ecommerce.orderservice.resilience.DownstreamGuard;
+import com.ecommerce.orderservice.resilience.RetryEngine;
+import com.ecommerce.orderservice.resilience.SingleFlight;
+import com.ecommerce.orderservice.util.ConcurrencyUtils;
+import com.ecommerce.orderservice.util.ProxyCallLogger;
+import com.ecommerce.orderservice.util.ProxyMetrics;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 @Service
 public class ProductServiceProxy {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ProductServiceProxy.class);
 
+	private static final String DOWNSTREAM = "product-service";
+
 	@Autowired
 	private RestTemplate restTemplate;
 
-	private static String PRODUCT_SERVICE_URL = "http://localhost:8081/api/products/";
+	@Autowired
+	private ThreadPoolTaskExecutor proxyTaskExecutor;
+
+	@Autowired
+	private RetryEngine retryEngine;
+
+	@Autowired
+	private ProxyCallLogger proxyCallLogger;
+
+	@Autowired
+	private ProxyMetrics proxyMetrics;
+
+	@Autowired
+	private DownstreamGuard productServiceGuard;
+
+	@Value("${proxy.batch.max-ids:50}")
+	private int batchMaxIds;
+
+	@Value("${proxy.product-service.url:http://localhost:8081/api/products/}")
+	private String productServiceUrl;
+
+	static final Set<HttpStatus> UNSUPPORTED_ENDPOINT_STATUSES = EnumSet.of(HttpStatus.BAD_REQUEST,
+			HttpStatus.NOT_FOUND, HttpStatus.METHOD_NOT_ALLOWED, HttpStatus.NOT_IMPLEMENTED);
+
+	private final AtomicBoolean bulkEndpointSupported = new AtomicBoolean(true);
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${product.cache.max-entries:10000}")
+	private long cacheMaxEntries;
+
+	@Value("${product.cache.max-memory-bytes:16777216}")
+	private long cacheMaxMemoryBytes;
+
+	@Value("${product.cache.ttl-seconds:600}")
+	private long cacheTtlSeconds;
+
+	@Value("${product.cache.refresh-after-seconds:300}")
+	private long cacheRefreshAfterSeconds;
+
+	private LoadingCache<Long, ProductDto> productCache;
+
+	private SingleFlight<String, ResponseEntity<?>> readFlight;
+
+	/**
+	 * Read-through cache of the product catalog. Entries are weighed by their
+	 * estimated size, but never less than their share of the memory budget, so
+	 * both the entry count and the memory bounds hold. Entries older than the
+	 * refresh interval are reloaded in the background on the next read, and are
+	 * dropped once they reach the TTL.
+	 */
+	@PostConstruct
+	public void initProductCache() {
+		long minimumWeight = Math.max(1, cacheMaxMemoryBytes / cacheMaxEntries);
+
+		productCache = Caffeine.newBuilder().maximumWeight(cacheMaxMemoryBytes)
+				.weigher((Long productId, ProductDto product) -> (int) Math.min(Integer.MAX_VALUE,
+						Math.max(minimumWeight, estimateSize(product))))
+				.expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+				.refreshAfterWrite(cacheRefreshAfterSeconds, TimeUnit.SECONDS).executor(proxyTaskExecutor)
+				.recordStats().build(new CacheLoader<Long, ProductDto>() {
+
+					@Override
+					public ProductDto load(Long productId) {
+						return fetchProduct(productId);
+					}
+
+					@Override
+					public Map<Long, ProductDto> loadAll(Iterable<? extends Long> productIds) {
+						List<Long> ids = new ArrayList<>();
+						productIds.forEach(ids::add);
+						return fetchProducts(ids);
+					}
+				});
+
+		CaffeineCacheMetrics.monitor(meterRegistry, productCache, "productCache");
+		readFlight = new SingleFlight<>("productService", meterRegistry);
+	}
+
+	private static long estimateSize(ProductDto product) {
+		return 128 + 2L * (length(product.getProductCode()) + length(product.getProductName())
+				+ length(product.getDescription()) + length(product.getCategory()));
+	}
+
+	private static int length(String value) {
+		return (value == null) ? 0 : value.length();
+	}
 
 	public ProductDto getProductById(Long productId) {
-		String traceId = UUID.randomUUID().toString();
+		return productCache.get(productId);
+	}
 
-		HttpHeaders headers = new HttpHeaders();
-		headers.set("TRACE", traceId);
+	public ProductDto getCachedProduct(Long productId) {
+		return productCache.getIfPresent(productId);
+	}
 
-		HttpEntity<ProductDto> httpEntity = new HttpEntity<>(null, headers);
+	public void cacheProduct(ProductDto product) {
+		productCache.put(product.getId(), product);
+	}
+
+	public void evictProduct(Long productId) {
+		productCache.invalidate(productId);
+	}
+
+	/**
+	 * Fetches the given products in as few requests as possible. Products that do
+	 * not exist are left out of the returned map.
+	 */
+	public Map<Long, ProductDto> getProductsByIds(Collection<Long> productIds) {
+		List<Long> ids = productIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+		return new HashMap<>(productCache.getAll(ids));
+	}
 
-		return processProxyRequest(PRODUCT_SERVICE_URL + productId, HttpMethod.GET, httpEntity,
+	private Map<Long, ProductDto> fetchProducts(List<Long> productIds) {
+		Map<Long, ProductDto> products = new HashMap<>();
+
+		for (int from = 0; from < productIds.size(); from += batchMaxIds) {
+			List<Long> chunk = productIds.subList(from, Math.min(from + batchMaxIds, productIds.size()));
+
+			List<ProductDto> fetched = bulkEndpointSupported.get() ? fetchProductsInBulk(chunk) : null;
+			if (fetched == null)
+				fetched = fetchProductsInParallel(chunk);
+
+			fetched.stream().filter(product -> product != null && product.getId() != null)
+					.forEach(product -> products.put(product.getId(), product));
+		}
+		return products;
+	}
+
+	private List<ProductDto> fetchProductsInBulk(List<Long> productIds) {
+		String ids = productIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+		ResponseEntity<List<ProductDto>> response = processCoalescedGet(productServiceUrl + "batch?ids=" + ids,
+				new ParameterizedTypeReference<List<ProductDto>>() {
+				});
+
+		HttpStatus status = HttpStatus.resolve(response.getStatusCodeValue());
+		if (status != null && status.is2xxSuccessful())
+			return response.getBody();
+
+		if (UNSUPPORTED_ENDPOINT_STATUSES.contains(status)) {
+			LOGGER.info("Product service has no bulk endpoint, falling back to single requests");
+			bulkEndpointSupported.set(false);
+		}
+		return null;
+	}
+
+	private List<ProductDto> fetchProductsInParallel(List<Long> productIds) {
+		List<CompletableFuture<ProductDto>> futures = productIds.stream()
+				.map(productId -> CompletableFuture.supplyAsync(() -> fetchProduct(productId), proxyTaskExecutor))
+				.collect(Collectors.toList());
+
+		return ConcurrencyUtils.joinAll(futures);
+	}
+
+	private ProductDto fetchProduct(Long productId) {
+		ResponseEntity<ProductDto> response = processCoalescedGet(productServiceUrl + productId,
 				new ParameterizedTypeReference<ProductDto>() {
-				}, UUID.randomUUID().toString()).getBody();
+				});
+
+		// Error responses carry the raw error body, so only read the body on success
+		return HttpStatus.valueOf(response.getStatusCodeValue()).is2xxSuccessful() ? response.getBody() : null;
 	}
 
-	public ProductDto createProduct(ProductDto product) {
-		String traceId = UUID.randomUUID().toString();
+	/**
+	 * GET shared by every caller that asks for the same URL while it is in flight.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> ResponseEntity<T> processCoalescedGet(String url, ParameterizedTypeReference<T> entityType) {
+		return (ResponseEntity<T>) readFlight.execute(url,
+				() -> processProxyRequest(url, HttpMethod.GET, new HttpEntity<>(null, new HttpHeaders()), entityType));
+	}
 
+	public ProductDto createProduct(ProductDto product) {
 		HttpHeaders headers = new HttpHeaders();
 		headers.setContentType(MediaType.APPLICATION_JSON);
-		headers.set("TRACE", traceId);
 
 		HttpEntity<ProductDto> httpEntity = new HttpEntity<>(product, headers);
 
-		return processProxyRequest(PRODUCT_SERVICE_URL, HttpMethod.POST, httpEntity,
+		return processProxyRequest(productServiceUrl, HttpMethod.POST, httpEntity,
 				new ParameterizedTypeReference<ProductDto>() {
-				}, UUID.randomUUID().toString()).getBody();
+				}).getBody();
 	}
 
 	public ProductDto updateProduct(long id, ProductDto product) {
-		String traceId = UUID.randomUUID().toString();
-
 		HttpHeaders headers = new HttpHeaders();
 		headers.setContentType(MediaType.APPLICATION_JSON);
-		headers.set("TRACE", traceId);
 
 		HttpEntity<ProductDto> httpEntity = new HttpEntity<>(product, headers);
 
-		return processProxyRequest(PRODUCT_SERVICE_URL + id, HttpMethod.PUT, httpEntity,
+		ProductDto updatedProduct = processProxyRequest(productServiceUrl + id, HttpMethod.PUT, httpEntity,
 				new ParameterizedTypeReference<ProductDto>() {
-				}, UUID.randomUUID().toString()).getBody();
+				}).getBody();
+		productCache.invalidate(id);
+		return updatedProduct;
 	}
 
 	public void deleteProduct(long id) {
-		String traceId = UUID.randomUUID().toString();
-
 		HttpHeaders headers = new HttpHeaders();
-		headers.set("TRACE", traceId);
 
 		HttpEntity<ProductDto> httpEntity = new HttpEntity<>(null, headers);
 
-		String responseBody = processProxyRequest(PRODUCT_SERVICE_URL + id, HttpMethod.DELETE, httpEntity,
+		String responseBody = processProxyRequest(productServiceUrl + id, HttpMethod.DELETE, httpEntity,
 				new ParameterizedTypeReference<String>() {
-				}, UUID.randomUUID().toString()).getBody();
+				}).getBody();
+		productCache.invalidate(id);
 		LOGGER.info(responseBody);
 	}
 
-	@SuppressWarnings("unchecked")
-	@Retryable(exclude = {
-			HttpStatusCodeException.class }, include = Exception.class, backoff = @Backoff(delay = 5000, multiplier = 4.0), maxAttempts = 4)
 	public <T> ResponseEntity<T> processProxyRequest(String url, HttpMethod method, HttpEntity<ProductDto> httpEntity,
-			ParameterizedTypeReference<T> entityType, String traceId) {
+			ParameterizedTypeReference<T> entityType) {
 
-		// You can add logging, metrics collection, etc. here
-
-		ThreadContext.put("traceId", traceId);
-		LOGGER.info("Trace Id : " + traceId);
+		try {
+			// Only I/O failures of calls that are safe to send again are retried, error
+			// responses are returned to the caller
+			return retryEngine.execute(DOWNSTREAM,
+					() -> productServiceGuard.call(() -> exchange(url, method, httpEntity, entityType)),
+					e -> e instanceof ResourceAccessException && RetryEngine.mayResend(method, e));
+		} catch (EcommerceException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			return recoverFromRestClientErrors(e, url, method, httpEntity, entityType);
+		}
+	}
 
-		ClientHttpRequestFactory factory = new BufferingClientHttpRequestFactory(new SimpleClientHttpRequestFactory());
-		restTemplate.setRequestFactory(factory);
+	@SuppressWarnings("unchecked")
+	private <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<ProductDto> httpEntity,
+			ParameterizedTypeReference<T> entityType) {
 
+		long start = System.nanoTime();
 		try {
 			ResponseEntity<T> response = restTemplate.exchange(url, method, httpEntity, entityType);
 
-			LOGGER.info("Response Status : " + response.getStatusCode().toString());
-			LOGGER.info("Response Headers : " + response.getHeaders().toString());
-			LOGGER.info("Response Body : " + response.getBody().toString());
-
+			long duration = System.nanoTime() - start;
+			proxyMetrics.recordResponse(DOWNSTREAM, method, url, response.getStatusCodeValue(), duration);
+			proxyCallLogger.logSuccess(DOWNSTREAM, method, url, response.getStatusCodeValue(), response.getBody(),
+					duration);
 			return response;
 
 		} catch (HttpStatusCodeException e) {
-			LOGGER.error("Exception occured in calling REST API : " + url);
-			LOGGER.error("Error Message : " + e.getMessage());
+			long duration = System.nanoTime() - start;
+			proxyMetrics.recordResponse(DOWNSTREAM, method, url, e.getRawStatusCode(), duration);
+			proxyCallLogger.logErrorResponse(DOWNSTREAM, method, url, e.getRawStatusCode(),
+					e.getResponseBodyAsByteArray(), duration);
 
 			return new ResponseEntity<T>((T) e.getResponseBodyAsString(), e.getResponseHeaders(), e.getRawStatusCode());
+		} catch (RuntimeException e) {
+			long duration = System.nanoTime() - start;
+			proxyMetrics.recordFailure(DOWNSTREAM, method, url, e, duration);
+			proxyCallLogger.logFailure(DOWNSTREAM, method, url, e, duration);
+			throw e;
 		}
-
 	}
 
-	@Recover
 	public <T> ResponseEntity<T> recoverFromRestClientErrors(Exception e, String url, HttpMethod method,
-			HttpEntity<ProductDto> httpEntity, ParameterizedTypeReference<T> entityType, String traceId) {
+			HttpEntity<ProductDto> httpEntity, ParameterizedTypeReference<T> entityType) {
 
-		LOGGER.error("Retry method for the following url " + url + " has failed" + e.getMessage());
-		LOGGER.error(e.getStackTrace().toString());
+		LOGGER.error("Retry method for the following url {} has failed", url, e);
+		proxyMetrics.recordRecovery(DOWNSTREAM, e);
 
 		throw new RuntimeException("There was an error trying to process you request. Please try again later");
 	}
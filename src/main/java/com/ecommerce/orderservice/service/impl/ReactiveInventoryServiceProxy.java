@@ -0,0 +1,337 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.model.InventoryDto;
+import com.ecommerce.orderservice.model.InventoryReservationDto;
+import com.ecommerce.orderservice.resilience.DownstreamGuard;
+import com.ecommerce.orderservice.resilience.RetryEngine;
+import com.ecommerce.orderservice.resilience.SingleFlight;
+import com.ecommerce.orderservice.util.ProxyCallLogger;
+import com.ecommerce.orderservice.util.ProxyMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Non-blocking counterpart of {@link InventoryServiceProxy}, with the same
+ * reservation semantics: reservations complete empty when there is not enough
+ * stock.
+ */
+@Service
+public class ReactiveInventoryServiceProxy {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveInventoryServiceProxy.class);
+
+	private static final String DOWNSTREAM = "inventory-service";
+
+	@Autowired
+	private WebClient proxyWebClient;
+
+	@Autowired
+	private RetryEngine retryEngine;
+
+	@Autowired
+	private ProxyCallLogger proxyCallLogger;
+
+	@Autowired
+	private ProxyMetrics proxyMetrics;
+
+	@Autowired
+	private DownstreamGuard inventoryServiceGuard;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${proxy.reactive.concurrency:16}")
+	private int concurrency;
+
+	@Value("${proxy.batch.max-ids:50}")
+	private int batchMaxIds;
+
+	@Value("${proxy.reservation.max-attempts:5}")
+	private int reservationMaxAttempts;
+
+	@Value("${proxy.inventory-service.url:http://localhost:8082/api/inventory/}")
+	private String inventoryServiceUrl;
+
+	private final AtomicBoolean bulkEndpointSupported = new AtomicBoolean(true);
+
+	private final AtomicBoolean reservationEndpointSupported = new AtomicBoolean(true);
+
+	private SingleFlight<String, ResponseEntity<?>> readFlight;
+
+	@PostConstruct
+	public void initReadFlight() {
+		readFlight = new SingleFlight<>("reactiveInventoryService", meterRegistry);
+	}
+
+	public Mono<InventoryDto> getInventoryById(Long inventoryId) {
+		return processCoalescedGet(inventoryServiceUrl + inventoryId, new ParameterizedTypeReference<InventoryDto>() {
+		}).flatMap(this::bodyIfSuccessful);
+	}
+
+	public Mono<InventoryDto> createInventory(InventoryDto inventory) {
+		return processProxyRequest(inventoryServiceUrl, HttpMethod.POST, inventory,
+				new ParameterizedTypeReference<InventoryDto>() {
+				}, null).flatMap(this::bodyOrError);
+	}
+
+	public Mono<InventoryDto> updateInventory(long id, InventoryDto inventory) {
+		return processProxyRequest(inventoryServiceUrl + id, HttpMethod.PUT, inventory,
+				new ParameterizedTypeReference<InventoryDto>() {
+				}, null).flatMap(this::bodyOrError);
+	}
+
+	public Mono<Void> deleteInventory(long id) {
+		return processProxyRequest(inventoryServiceUrl + id, HttpMethod.DELETE, null,
+				new ParameterizedTypeReference<String>() {
+				}, null).flatMap(this::bodyOrError).doOnNext(LOGGER::info).then();
+	}
+
+	public Mono<List<InventoryDto>> getAllInventory() {
+		return processProxyRequest(inventoryServiceUrl, HttpMethod.GET, null,
+				new ParameterizedTypeReference<List<InventoryDto>>() {
+				}, null).flatMap(this::bodyOrError);
+	}
+
+	public Mono<List<InventoryDto>> getInventoryByProductId(Long productId) {
+		return processCoalescedGet(inventoryServiceUrl + "product/" + productId,
+				new ParameterizedTypeReference<List<InventoryDto>>() {
+				}).flatMap(this::bodyIfSuccessful).defaultIfEmpty(List.of());
+	}
+
+	/**
+	 * Fetches the inventory of the given products in bulk requests of at most
+	 * {@code proxy.batch.max-ids} ids, or with bounded concurrent single requests
+	 * when the inventory service has no bulk endpoint. Every requested product is
+	 * present in the returned map.
+	 */
+	public Mono<Map<Long, List<InventoryDto>>> getInventoryByProductIds(Collection<Long> productIds) {
+		List<Long> ids = productIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+
+		return Flux.fromIterable(ids).buffer(batchMaxIds).concatMap(this::fetchInventory)
+				.collect(HashMap<Long, List<InventoryDto>>::new, Map::putAll).map(inventories -> {
+					Map<Long, List<InventoryDto>> result = new HashMap<>();
+					for (Long productId : ids)
+						result.put(productId, inventories.getOrDefault(productId, List.of()));
+					return result;
+				});
+	}
+
+	private Mono<Map<Long, List<InventoryDto>>> fetchInventory(List<Long> productIds) {
+		return Mono.defer(() -> bulkEndpointSupported.get() ? fetchInventoryInBulk(productIds) : Mono.empty())
+				.switchIfEmpty(Mono.defer(() -> Flux.fromIterable(productIds)
+						.flatMap(productId -> getInventoryByProductId(productId)
+								.map(inventoryList -> Map.entry(productId, inventoryList)), concurrency)
+						.collectMap(Map.Entry::getKey, Map.Entry::getValue)));
+	}
+
+	private Mono<Map<Long, List<InventoryDto>>> fetchInventoryInBulk(List<Long> productIds) {
+		String ids = productIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+
+		return processCoalescedGet(inventoryServiceUrl + "product/batch?productIds=" + ids,
+				new ParameterizedTypeReference<List<InventoryDto>>() {
+				}).flatMap(response -> {
+					if (response.getStatusCode().is2xxSuccessful())
+						return Mono.just((response.getBody() == null) ? Map.<Long, List<InventoryDto>>of()
+								: response.getBody().stream().filter(inventory -> inventory.getProductId() != null)
+										.collect(Collectors.groupingBy(InventoryDto::getProductId)));
+
+					if (InventoryServiceProxy.UNSUPPORTED_ENDPOINT_STATUSES.contains(response.getStatusCode())) {
+						LOGGER.info("Inventory service has no bulk endpoint, falling back to single requests");
+						bulkEndpointSupported.set(false);
+					}
+					return Mono.empty();
+				});
+	}
+
+	public Mono<InventoryDto> reserveInventory(long inventoryId, int quantity) {
+		return reservation(inventoryServiceUrl + inventoryId + "/reserve", quantity)
+				.switchIfEmpty(Mono.defer(() -> adjustInventoryConditionally(inventoryId, -quantity).map(Optional::of)))
+				.flatMap(Mono::justOrEmpty);
+	}
+
+	public Mono<InventoryDto> reserveProductInventory(long productId, int quantity) {
+		return reservation(inventoryServiceUrl + "product/" + productId + "/reserve", quantity)
+				.switchIfEmpty(Mono.defer(() -> getInventoryByProductId(productId).flatMapMany(Flux::fromIterable)
+						.filter(inventory -> inventory.getVendorInventory() != null
+								&& inventory.getVendorInventory() >= quantity)
+						.concatMap(inventory -> adjustInventoryConditionally(inventory.getId(), -quantity)).next()
+						.map(Optional::of)))
+				.flatMap(Mono::justOrEmpty);
+	}
+
+	public Mono<InventoryDto> releaseInventory(long inventoryId, int quantity) {
+		return reservation(inventoryServiceUrl + inventoryId + "/release", quantity)
+				.switchIfEmpty(Mono.defer(() -> adjustInventoryConditionally(inventoryId, quantity).map(Optional::of)))
+				.flatMap(Mono::justOrEmpty);
+	}
+
+	/**
+	 * Calls a reservation endpoint. Completes with the updated inventory, with an
+	 * empty optional when there is not enough stock, or empty when the conditional
+	 * update fallback has to be used.
+	 */
+	private Mono<Optional<InventoryDto>> reservation(String url, int quantity) {
+		if (!reservationEndpointSupported.get())
+			return Mono.empty();
+
+		return processProxyRequest(url, HttpMethod.POST, new InventoryReservationDto(quantity),
+				new ParameterizedTypeReference<InventoryDto>() {
+				}, null).flatMap(response -> {
+					if (response.getStatusCode().is2xxSuccessful())
+						return Mono.just(Optional.ofNullable(response.getBody()));
+					if (response.getStatusCode() == HttpStatus.CONFLICT)
+						return Mono.just(Optional.<InventoryDto>empty());
+
+					if (InventoryServiceProxy.UNSUPPORTED_ENDPOINT_STATUSES.contains(response.getStatusCode())) {
+						LOGGER.info("Inventory service has no reservation endpoint, falling back to conditional updates");
+						reservationEndpointSupported.set(false);
+						return Mono.empty();
+					}
+					return Mono.error(new EcommerceException("inventory-reservation-failed",
+							"Inventory service rejected the reservation with status " + response.getStatusCodeValue(),
+							HttpStatus.BAD_GATEWAY));
+				});
+	}
+
+	/**
+	 * Fallback for inventory services without a reservation endpoint. Reads the
+	 * inventory together with its ETag and writes it back with If-Match, retrying
+	 * when another writer got there first. Completes empty when there is not
+	 * enough stock.
+	 */
+	private Mono<InventoryDto> adjustInventoryConditionally(long inventoryId, int delta) {
+		return Mono.defer(() -> processProxyRequest(inventoryServiceUrl + inventoryId, HttpMethod.GET, null,
+				new ParameterizedTypeReference<InventoryDto>() {
+				}, null).flatMap(current -> {
+					if (!current.getStatusCode().is2xxSuccessful() || current.getBody() == null)
+						return Mono.empty();
+
+					InventoryDto inventory = current.getBody();
+					int available = (inventory.getVendorInventory() == null) ? 0 : inventory.getVendorInventory();
+					if (available + delta < 0)
+						return Mono.empty();
+					inventory.setVendorInventory(available + delta);
+
+					return processProxyRequest(inventoryServiceUrl + inventoryId, HttpMethod.PUT, inventory,
+							new ParameterizedTypeReference<InventoryDto>() {
+							}, current.getHeaders().getETag()).flatMap(updated -> {
+								if (updated.getStatusCode().is2xxSuccessful())
+									return Mono.justOrEmpty(updated.getBody());
+								if (updated.getStatusCode() == HttpStatus.PRECONDITION_FAILED)
+									return Mono.error(new InventoryChangedException());
+
+								return Mono.error(new EcommerceException("inventory-update-failed",
+										"Inventory service rejected the update of inventory id: " + inventoryId
+												+ " with status " + updated.getStatusCodeValue(),
+										HttpStatus.BAD_GATEWAY));
+							});
+				}))
+				.retryWhen(Retry.max(reservationMaxAttempts - 1L)
+						.filter(InventoryChangedException.class::isInstance))
+				.onErrorMap(Exceptions::isRetryExhausted,
+						e -> new EcommerceException("inventory-contention", "Inventory id: " + inventoryId
+								+ " is being updated concurrently. Please try again later", HttpStatus.CONFLICT));
+	}
+
+	/**
+	 * GET shared by every subscriber that asks for the same URL while it is in
+	 * flight. Not for reads whose body is changed and written back, since the body
+	 * is shared as well.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private <T> Mono<ResponseEntity<T>> processCoalescedGet(String url, ParameterizedTypeReference<T> entityType) {
+		return (Mono) readFlight.executeReactive(url,
+				(Mono) processProxyRequest(url, HttpMethod.GET, null, entityType, null));
+	}
+
+	/**
+	 * Sends the request without blocking. Error statuses are returned as bodiless
+	 * responses, so callers can decide what a 404 or 409 means for them.
+	 */
+	<T> Mono<ResponseEntity<T>> processProxyRequest(String url, HttpMethod method, Object body,
+			ParameterizedTypeReference<T> entityType, String ifMatch) {
+		WebClient.RequestBodySpec request = proxyWebClient.method(method).uri(url);
+		if (ifMatch != null)
+			request = request.header(HttpHeaders.IF_MATCH, ifMatch);
+		WebClient.RequestHeadersSpec<?> requestWithBody = (body == null) ? request
+				: request.contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+
+		Mono<ResponseEntity<T>> timedExchange = Mono.defer(() -> {
+			long start = System.nanoTime();
+			return requestWithBody.exchangeToMono(response -> {
+				int status = response.rawStatusCode();
+				if (response.statusCode().is2xxSuccessful())
+					return response.toEntity(entityType).doOnNext(entity -> {
+						long duration = System.nanoTime() - start;
+						proxyMetrics.recordResponse(DOWNSTREAM, method, url, status, duration);
+						proxyCallLogger.logSuccess(DOWNSTREAM, method, url, status, entity.getBody(), duration);
+					});
+
+				return response.bodyToMono(byte[].class).defaultIfEmpty(new byte[0]).map(errorBody -> {
+					long duration = System.nanoTime() - start;
+					proxyMetrics.recordResponse(DOWNSTREAM, method, url, status, duration);
+					proxyCallLogger.logErrorResponse(DOWNSTREAM, method, url, status, errorBody, duration);
+					return ResponseEntity.status(status).<T>build();
+				});
+			}).doOnError(e -> {
+				long duration = System.nanoTime() - start;
+				proxyMetrics.recordFailure(DOWNSTREAM, method, url, e, duration);
+				proxyCallLogger.logFailure(DOWNSTREAM, method, url, e, duration);
+			});
+		});
+
+		// Only I/O failures of calls that are safe to send again are retried, error
+		// responses are returned to the caller
+		return retryEngine.withRetries(DOWNSTREAM, inventoryServiceGuard.call(timedExchange),
+				e -> e instanceof WebClientRequestException && RetryEngine.mayResend(method, e));
+	}
+
+	private <T> Mono<T> bodyIfSuccessful(ResponseEntity<T> response) {
+		return response.getStatusCode().is2xxSuccessful() ? Mono.justOrEmpty(response.getBody()) : Mono.empty();
+	}
+
+	private <T> Mono<T> bodyOrError(ResponseEntity<T> response) {
+		if (response.getStatusCode().is2xxSuccessful())
+			return Mono.justOrEmpty(response.getBody());
+
+		return Mono.error(new EcommerceException("inventory-service-error",
+				"Inventory service responded with status " + response.getStatusCodeValue(),
+				(response.getStatusCode().is4xxClientError()) ? response.getStatusCode() : HttpStatus.BAD_GATEWAY));
+	}
+
+	private static class InventoryChangedException extends RuntimeException {
+
+		private static final long serialVersionUID = 2196356436203468574L;
+	}
+}
@@ -0,0 +1,178 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.model.InventoryDto;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.ProductDto;
+import com.ecommerce.orderservice.repository.OrderRepository;
+import com.ecommerce.orderservice.resilience.RequestDeadline;
+import com.ecommerce.orderservice.service.ReactiveOrderService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Order creation composed from the reactive proxies. No thread waits on the
+ * product or inventory service; only the final database write runs on the
+ * bounded elastic scheduler, since JPA is blocking.
+ */
+@Service
+public class ReactiveOrderServiceImpl implements ReactiveOrderService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveOrderService.class);
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderMapper mapper;
+
+	@Autowired
+	private ReactiveProductServiceProxy productServiceProxy;
+
+	@Autowired
+	private ReactiveInventoryServiceProxy inventoryServiceProxy;
+
+	@Value("${proxy.reactive.concurrency:16}")
+	private int concurrency;
+
+	/**
+	 * Checks and reserves the stock, then saves the order. If the save fails, the
+	 * reservations are released before the failure is propagated.
+	 */
+	@Override
+	public Mono<OrderDto> createOrder(OrderDto orderDto) {
+		return Mono.defer(() -> {
+			List<ItemDto> reservedItems = Collections.synchronizedList(new ArrayList<>());
+
+			return checkProductStockAvailability(orderDto.getItems())
+					.then(reserveProductStock(orderDto.getItems(), reservedItems))
+					.then(Mono.fromCallable(() -> mapper.toDto(orderRepository.save(mapper.toEntity(orderDto))))
+							.subscribeOn(Schedulers.boundedElastic()))
+					.onErrorResume(e -> releaseAll(reservedItems).then(Mono.error(e)));
+		}).contextWrite(RequestDeadline.captureContext());
+	}
+
+	private Mono<Void> checkProductStockAvailability(List<ItemDto> items) {
+		Set<Long> productIds = items.stream().map(ItemDto::getProductId)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+
+		return Mono
+				.zip(productServiceProxy.getProductsByIds(productIds),
+						inventoryServiceProxy.getInventoryByProductIds(productIds))
+				.flatMapMany(cart -> Flux.fromIterable(items).concatMap(item -> checkItem(item, cart.getT1(), cart.getT2())))
+				.then();
+	}
+
+	private Mono<Void> checkItem(ItemDto item, Map<Long, ProductDto> products,
+			Map<Long, List<InventoryDto>> inventories) {
+		ProductDto product = products.get(item.getProductId());
+		StockAvailability.checkProductFound(item, product);
+
+		List<InventoryDto> inventoryList = inventories.getOrDefault(product.getId(), Collections.emptyList());
+		Mono<Integer> availableStock;
+
+		if (item.getInventoryId() != null) {
+			availableStock = Mono.justOrEmpty(StockAvailability.findPinnedInventory(item, inventoryList))
+					.switchIfEmpty(Mono.defer(() -> inventoryServiceProxy.getInventoryById(item.getInventoryId())))
+					.map(InventoryDto::getVendorInventory).defaultIfEmpty(0);
+		} else {
+			availableStock = Mono.just(StockAvailability.totalStock(inventoryList));
+		}
+
+		return availableStock.doOnNext(stock -> StockAvailability.checkStock(item, stock)).then();
+	}
+
+	/**
+	 * Reserves stock for the items with bounded concurrency, recording each
+	 * reserved item in reservedItems. If any reservation fails, no further ones
+	 * are started, and once those in flight have completed every successful one
+	 * is released before the failure is propagated. If the subscriber cancels,
+	 * the reservations in flight run to completion in the background and are
+	 * released as well.
+	 */
+	private Mono<Void> reserveProductStock(List<ItemDto> items, List<ItemDto> reservedItems) {
+		List<CompletableFuture<InventoryDto>> reservations = Collections.synchronizedList(new ArrayList<>());
+		AtomicBoolean failed = new AtomicBoolean();
+
+		return Flux.fromIterable(items)
+				.flatMapDelayError(item -> failed.get() ? Mono.<InventoryDto>empty()
+						: reserveToCompletion(item, reservedItems, reservations).doOnError(e -> failed.set(true)),
+						concurrency, 1)
+				.then().onErrorResume(e -> releaseAll(reservedItems).then(Mono.error(e)))
+				.doOnCancel(() -> CompletableFuture.allOf(reservations.toArray(new CompletableFuture[0]))
+						.whenComplete((result, e) -> releaseAll(reservedItems).subscribe()));
+	}
+
+	/**
+	 * Reservation that is not abandoned when its subscriber cancels, since the
+	 * inventory service may already have applied it. It runs in the context of the
+	 * subscriber, and the item is recorded in reservedItems once it succeeds.
+	 */
+	private Mono<InventoryDto> reserveToCompletion(ItemDto item, List<ItemDto> reservedItems,
+			List<CompletableFuture<InventoryDto>> reservations) {
+		return Mono.deferContextual(context -> {
+			CompletableFuture<InventoryDto> reservation = reserve(item).doOnNext(inventory -> reservedItems.add(item))
+					.contextWrite(context).toFuture();
+			reservations.add(reservation);
+			// A copy, so that cancelling the subscriber leaves the reservation running
+			return Mono.fromFuture(reservation.copy());
+		});
+	}
+
+	/**
+	 * Releases the reserved items, each one once however often this is called.
+	 */
+	private Mono<Void> releaseAll(List<ItemDto> reservedItems) {
+		return Mono.defer(() -> {
+			List<ItemDto> itemsToRelease;
+			synchronized (reservedItems) {
+				itemsToRelease = new ArrayList<>(reservedItems);
+				reservedItems.clear();
+			}
+
+			return Flux.fromIterable(itemsToRelease)
+					.flatMap(item -> inventoryServiceProxy.releaseInventory(item.getInventoryId(), item.getQuantity())
+							.onErrorResume(releaseException -> {
+								LOGGER.error("Could not release stock of product id: {} from inventory id: {}",
+										item.getProductId(), item.getInventoryId(), releaseException);
+								return Mono.empty();
+							}), concurrency)
+					.then();
+		});
+	}
+
+	private Mono<InventoryDto> reserve(ItemDto item) {
+		Mono<InventoryDto> pinnedInventory = (item.getInventoryId() == null) ? Mono.empty()
+				: inventoryServiceProxy.reserveInventory(item.getInventoryId(), item.getQuantity());
+
+		return pinnedInventory
+				.switchIfEmpty(Mono.defer(() -> inventoryServiceProxy
+						.reserveProductInventory(item.getProductId(), item.getQuantity())
+						.doOnNext(inventory -> item.setInventoryId(inventory.getId()))))
+				.switchIfEmpty(Mono.error(() -> new EcommerceException("product-not-available",
+						"Product with id: " + item.getProductId() + " does not have " + item.getQuantity()
+								+ " units left in any inventory.",
+						HttpStatus.NOT_FOUND)));
+	}
+}
@@ -0,0 +1,228 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.model.ProductDto;
+import com.ecommerce.orderservice.resilience.DownstreamGuard;
+import com.ecommerce.orderservice.resilience.RetryEngine;
+import com.ecommerce.orderservice.resilience.SingleFlight;
+import com.ecommerce.orderservice.util.ProxyCallLogger;
+import com.ecommerce.orderservice.util.ProxyMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link ProductServiceProxy}. Reads go through the
+ * same product cache, so both proxies see the same catalog.
+ */
+@Service
+public class ReactiveProductServiceProxy {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveProductServiceProxy.class);
+
+	private static final String DOWNSTREAM = "product-service";
+
+	@Autowired
+	private WebClient proxyWebClient;
+
+	@Autowired
+	private RetryEngine retryEngine;
+
+	@Autowired
+	private ProxyCallLogger proxyCallLogger;
+
+	@Autowired
+	private ProxyMetrics proxyMetrics;
+
+	@Autowired
+	private DownstreamGuard productServiceGuard;
+
+	@Autowired
+	private ProductServiceProxy productServiceProxy;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${proxy.reactive.concurrency:16}")
+	private int concurrency;
+
+	@Value("${proxy.batch.max-ids:50}")
+	private int batchMaxIds;
+
+	@Value("${proxy.product-service.url:http://localhost:8081/api/products/}")
+	private String productServiceUrl;
+
+	private final AtomicBoolean bulkEndpointSupported = new AtomicBoolean(true);
+
+	private SingleFlight<String, ResponseEntity<?>> readFlight;
+
+	@PostConstruct
+	public void initReadFlight() {
+		readFlight = new SingleFlight<>("reactiveProductService", meterRegistry);
+	}
+
+	public Mono<ProductDto> getProductById(Long productId) {
+		ProductDto cachedProduct = productServiceProxy.getCachedProduct(productId);
+		if (cachedProduct != null)
+			return Mono.just(cachedProduct);
+
+		return processCoalescedGet(productServiceUrl + productId, new ParameterizedTypeReference<ProductDto>() {
+		}).flatMap(this::bodyIfSuccessful).doOnNext(productServiceProxy::cacheProduct);
+	}
+
+	/**
+	 * Fetches the given products in bulk requests of at most
+	 * {@code proxy.batch.max-ids} ids, or with bounded concurrent single requests
+	 * when the product service has no bulk endpoint. Products that do not exist are
+	 * left out of the returned map.
+	 */
+	public Mono<Map<Long, ProductDto>> getProductsByIds(Collection<Long> productIds) {
+		Map<Long, ProductDto> products = new HashMap<>();
+		List<Long> missingIds = productIds.stream().filter(Objects::nonNull).distinct().filter(productId -> {
+			ProductDto cachedProduct = productServiceProxy.getCachedProduct(productId);
+			if (cachedProduct != null)
+				products.put(productId, cachedProduct);
+			return cachedProduct == null;
+		}).collect(Collectors.toList());
+
+		if (missingIds.isEmpty())
+			return Mono.just(products);
+
+		return Flux.fromIterable(missingIds).buffer(batchMaxIds).concatMap(this::fetchProducts)
+				.filter(product -> product.getId() != null).doOnNext(productServiceProxy::cacheProduct)
+				.collect(() -> products, (map, product) -> map.put(product.getId(), product));
+	}
+
+	private Flux<ProductDto> fetchProducts(List<Long> productIds) {
+		return Mono.defer(() -> bulkEndpointSupported.get() ? fetchProductsInBulk(productIds) : Mono.empty())
+				.switchIfEmpty(Mono.defer(() -> fetchProductsOneByOne(productIds).collectList()))
+				.flatMapMany(Flux::fromIterable);
+	}
+
+	private Mono<List<ProductDto>> fetchProductsInBulk(List<Long> productIds) {
+		String ids = productIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+
+		return processCoalescedGet(productServiceUrl + "batch?ids=" + ids,
+				new ParameterizedTypeReference<List<ProductDto>>() {
+				}).flatMap(response -> {
+					if (response.getStatusCode().is2xxSuccessful())
+						return Mono.just((response.getBody() == null) ? List.<ProductDto>of() : response.getBody());
+
+					if (ProductServiceProxy.UNSUPPORTED_ENDPOINT_STATUSES.contains(response.getStatusCode())) {
+						LOGGER.info("Product service has no bulk endpoint, falling back to single requests");
+						bulkEndpointSupported.set(false);
+					}
+					return Mono.empty();
+				});
+	}
+
+	private Flux<ProductDto> fetchProductsOneByOne(List<Long> productIds) {
+		return Flux.fromIterable(productIds).flatMap(this::getProductById, concurrency);
+	}
+
+	/**
+	 * GET shared by every subscriber that asks for the same URL while it is in
+	 * flight.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private <T> Mono<ResponseEntity<T>> processCoalescedGet(String url, ParameterizedTypeReference<T> entityType) {
+		return (Mono) readFlight.executeReactive(url, (Mono) processProxyRequest(url, HttpMethod.GET, null, entityType));
+	}
+
+	public Mono<ProductDto> createProduct(ProductDto product) {
+		return processProxyRequest(productServiceUrl, HttpMethod.POST, product,
+				new ParameterizedTypeReference<ProductDto>() {
+				}).flatMap(this::bodyOrError);
+	}
+
+	public Mono<ProductDto> updateProduct(long id, ProductDto product) {
+		return processProxyRequest(productServiceUrl + id, HttpMethod.PUT, product,
+				new ParameterizedTypeReference<ProductDto>() {
+				}).flatMap(this::bodyOrError).doFinally(signal -> productServiceProxy.evictProduct(id));
+	}
+
+	public Mono<Void> deleteProduct(long id) {
+		return processProxyRequest(productServiceUrl + id, HttpMethod.DELETE, null,
+				new ParameterizedTypeReference<String>() {
+				}).flatMap(this::bodyOrError).doOnNext(LOGGER::info)
+				.doFinally(signal -> productServiceProxy.evictProduct(id)).then();
+	}
+
+	/**
+	 * Sends the request without blocking. Error statuses are returned as bodiless
+	 * responses, so callers can decide what a 404 or 409 means for them.
+	 */
+	<T> Mono<ResponseEntity<T>> processProxyRequest(String url, HttpMethod method, Object body,
+			ParameterizedTypeReference<T> entityType) {
+		WebClient.RequestBodySpec request = proxyWebClient.method(method).uri(url);
+		WebClient.RequestHeadersSpec<?> requestWithBody = (body == null) ? request
+				: request.contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+
+		Mono<ResponseEntity<T>> timedExchange = Mono.defer(() -> {
+			long start = System.nanoTime();
+			return requestWithBody.exchangeToMono(response -> {
+				int status = response.rawStatusCode();
+				if (response.statusCode().is2xxSuccessful())
+					return response.toEntity(entityType).doOnNext(entity -> {
+						long duration = System.nanoTime() - start;
+						proxyMetrics.recordResponse(DOWNSTREAM, method, url, status, duration);
+						proxyCallLogger.logSuccess(DOWNSTREAM, method, url, status, entity.getBody(), duration);
+					});
+
+				return response.bodyToMono(byte[].class).defaultIfEmpty(new byte[0]).map(errorBody -> {
+					long duration = System.nanoTime() - start;
+					proxyMetrics.recordResponse(DOWNSTREAM, method, url, status, duration);
+					proxyCallLogger.logErrorResponse(DOWNSTREAM, method, url, status, errorBody, duration);
+					return ResponseEntity.status(status).<T>build();
+				});
+			}).doOnError(e -> {
+				long duration = System.nanoTime() - start;
+				proxyMetrics.recordFailure(DOWNSTREAM, method, url, e, duration);
+				proxyCallLogger.logFailure(DOWNSTREAM, method, url, e, duration);
+			});
+		});
+
+		// Only I/O failures of calls that are safe to send again are retried, error
+		// responses are returned to the caller
+		return retryEngine.withRetries(DOWNSTREAM, productServiceGuard.call(timedExchange),
+				e -> e instanceof WebClientRequestException && RetryEngine.mayResend(method, e));
+	}
+
+	private <T> Mono<T> bodyIfSuccessful(ResponseEntity<T> response) {
+		return response.getStatusCode().is2xxSuccessful() ? Mono.justOrEmpty(response.getBody()) : Mono.empty();
+	}
+
+	private <T> Mono<T> bodyOrError(ResponseEntity<T> response) {
+		if (response.getStatusCode().is2xxSuccessful())
+			return Mono.justOrEmpty(response.getBody());
+
+		return Mono.error(new EcommerceException("product-service-error",
+				"Product service responded with status " + response.getStatusCodeValue(),
+				(response.getStatusCode().is4xxClientError()) ? response.getStatusCode() : HttpStatus.BAD_GATEWAY));
+	}
+}
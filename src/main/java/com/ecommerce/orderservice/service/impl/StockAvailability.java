@@ -0,0 +1,47 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.springframework.http.HttpStatus;
+
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.model.InventoryDto;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.ProductDto;
+
+/**
+ * Stock rules shared by the blocking and the reactive order flows.
+ */
+final class StockAvailability {
+
+	private StockAvailability() {
+	}
+
+	static void checkProductFound(ItemDto item, ProductDto product) {
+		if (product == null || product.getId() == null)
+			throw new EcommerceException("product-not-found", "Product with id = " + item.getProductId() + " not found.",
+					HttpStatus.NOT_FOUND);
+	}
+
+	static Optional<InventoryDto> findPinnedInventory(ItemDto item, List<InventoryDto> inventoryList) {
+		return inventoryList.stream().filter(x -> item.getInventoryId().equals(x.getId())).findAny();
+	}
+
+	static int totalStock(List<InventoryDto> inventoryList) {
+		return inventoryList.stream().map(InventoryDto::getVendorInventory).filter(Objects::nonNull)
+				.mapToInt(Integer::intValue).sum();
+	}
+
+	static void checkStock(ItemDto item, int availableStock) {
+		if (availableStock == 0)
+			throw new EcommerceException("product-not-available",
+					"Product with id: " + item.getProductId() + " is/are not available in stock.",
+					HttpStatus.NOT_FOUND);
+
+		if (availableStock < item.getQuantity())
+			throw new EcommerceException("product-not-available", "Only " + availableStock
+					+ " units of product - id: " + item.getProductId() + " is/are available.", HttpStatus.NOT_FOUND);
+	}
+}
@@ -0,0 +1,55 @@
+package com.ecommerce.orderservice.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+public final class ConcurrencyUtils {
+
+	private ConcurrencyUtils() {
+	}
+
+	/**
+	 * Waits for all the futures and returns their results in order. If any of them
+	 * failed, the remaining ones are cancelled and the original exception is
+	 * rethrown.
+	 */
+	public static <T> List<T> joinAll(Collection<CompletableFuture<T>> futures) {
+		CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+		futures.forEach(future -> future.whenComplete((result, e) -> {
+			if (e != null)
+				firstFailure.completeExceptionally(e);
+		}));
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((result, e) -> {
+			if (e != null)
+				firstFailure.completeExceptionally(e);
+			else
+				firstFailure.complete(null);
+		});
+
+		try {
+			firstFailure.join();
+		} catch (CompletionException | CancellationException e) {
+			futures.forEach(future -> future.cancel(true));
+			throw unwrap(e);
+		}
+
+		List<T> results = new ArrayList<>(futures.size());
+		for (CompletableFuture<T> future : futures)
+			results.add(future.join());
+		return results;
+	}
+
+	public static RuntimeException unwrap(Throwable throwable) {
+		Throwable cause = throwable;
+		while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+				&& cause.getCause() != null)
+			cause = cause.getCause();
+
+		return (cause instanceof RuntimeException) ? (RuntimeException) cause : new RuntimeException(cause);
+	}
+}
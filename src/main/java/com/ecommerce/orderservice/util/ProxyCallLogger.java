@@ -0,0 +1,147 @@
+package com.ecommerce.orderservice.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Structured log lines for downstream calls. Successful calls are only logged
+ * for a sample of requests, and their body only at DEBUG. Error bodies are
+ * always logged, cut to a maximum length. Nothing is formatted unless it is
+ * actually written, and no more of a body is formatted than is logged.
+ */
+@Component
+public class ProxyCallLogger {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProxyCallLogger.class);
+
+	@Value("${proxy.logging.sample-rate:0.01}")
+	private double sampleRate;
+
+	@Value("${proxy.logging.max-body-chars:512}")
+	private int maxBodyChars;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	public void logSuccess(String downstream, HttpMethod method, String url, int status, Object body,
+			long durationNanos) {
+		if (!LOGGER.isInfoEnabled() || ThreadLocalRandom.current().nextDouble() >= sampleRate)
+			return;
+
+		if (LOGGER.isDebugEnabled())
+			LOGGER.debug("downstream={} method={} url={} status={} durationMs={} body={}", downstream, method, url,
+					status, toMillis(durationNanos), abbreviate(body));
+		else
+			LOGGER.info("downstream={} method={} url={} status={} durationMs={}", downstream, method, url, status,
+					toMillis(durationNanos));
+	}
+
+	public void logErrorResponse(String downstream, HttpMethod method, String url, int status, byte[] body,
+			long durationNanos) {
+		if (!LOGGER.isWarnEnabled())
+			return;
+
+		LOGGER.warn("downstream={} method={} url={} status={} durationMs={} error={}", downstream, method, url,
+				status, toMillis(durationNanos), abbreviate(body));
+	}
+
+	public void logFailure(String downstream, HttpMethod method, String url, Throwable failure,
+			long durationNanos) {
+		if (!LOGGER.isErrorEnabled())
+			return;
+
+		LOGGER.error("downstream={} method={} url={} durationMs={} failure={}", downstream, method, url,
+				toMillis(durationNanos), failure.toString());
+	}
+
+	/**
+	 * Strings and bytes are cut to the maximum length before they are decoded,
+	 * other bodies are serialized as JSON only until the maximum length is reached.
+	 */
+	String abbreviate(Object body) {
+		if (body == null)
+			return "";
+
+		if (body instanceof String) {
+			String text = (String) body;
+			return (text.length() <= maxBodyChars) ? text
+					: text.substring(0, maxBodyChars) + "...(" + text.length() + " chars)";
+		}
+
+		if (body instanceof byte[]) {
+			byte[] bytes = (byte[]) body;
+			String text = new String(bytes, 0, Math.min(bytes.length, maxBodyChars), StandardCharsets.UTF_8);
+			return (bytes.length <= maxBodyChars) ? text : text + "...(" + bytes.length + " bytes)";
+		}
+
+		BoundedWriter writer = new BoundedWriter(maxBodyChars);
+		try {
+			objectMapper.writeValue(writer, body);
+		} catch (IOException e) {
+			if (!writer.isFull())
+				return "<" + body.getClass().getSimpleName() + ": " + e.getMessage() + ">";
+		}
+		return writer.isFull() ? writer + "...(truncated)" : writer.toString();
+	}
+
+	private static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * Keeps the first characters written to it and fails the write that goes past
+	 * them, which stops the serializer.
+	 */
+	private static final class BoundedWriter extends Writer {
+
+		private final StringBuilder text;
+
+		private final int maxChars;
+
+		private boolean full;
+
+		BoundedWriter(int maxChars) {
+			this.text = new StringBuilder(maxChars);
+			this.maxChars = maxChars;
+		}
+
+		@Override
+		public void write(char[] chars, int offset, int length) throws IOException {
+			int accepted = Math.min(length, maxChars - text.length());
+			text.append(chars, offset, accepted);
+			if (accepted < length) {
+				full = true;
+				throw new IOException("Body is longer than " + maxChars + " chars");
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+
+		boolean isFull() {
+			return full;
+		}
+
+		@Override
+		public String toString() {
+			return text.toString();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.ecommerce.orderservice.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters of the downstream calls made by the proxies. Calls are timed per
+ * downstream, method, URI template and outcome, so ids in the URL do not turn
+ * into separate series.
+ */
+@Component
+public class ProxyMetrics {
+
+	private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	public void recordResponse(String downstream, HttpMethod method, String url, int status, long durationNanos) {
+		timer(downstream, method, url, String.valueOf(status), Outcome.forStatus(status).name(), "none")
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordFailure(String downstream, HttpMethod method, String url, Throwable failure,
+			long durationNanos) {
+		timer(downstream, method, url, "IO_ERROR", Outcome.UNKNOWN.name(), failure.getClass().getSimpleName())
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordRetry(String downstream) {
+		meterRegistry.counter("proxy.retries", "downstream", downstream).increment();
+	}
+
+	public void recordRecovery(String downstream, Throwable failure) {
+		meterRegistry.counter("proxy.recoveries", "downstream", downstream, "exception",
+				failure.getClass().getSimpleName()).increment();
+	}
+
+	private Timer timer(String downstream, HttpMethod method, String url, String status, String outcome,
+			String exception) {
+		return Timer.builder("proxy.requests").description("Downstream calls made by the proxies")
+				.tag("downstream", downstream).tag("method", method.name()).tag("uri", uriTemplate(url))
+				.tag("status", status).tag("outcome", outcome).tag("exception", exception)
+				.publishPercentileHistogram().publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+	}
+
+	/**
+	 * Strips the scheme, host and query of the URL, and replaces numeric path
+	 * segments with {@code {id}}.
+	 */
+	static String uriTemplate(String url) {
+		int query = url.indexOf('?');
+		String path = (query < 0) ? url : url.substring(0, query);
+
+		int scheme = path.indexOf("://");
+		int pathStart = (scheme < 0) ? 0 : path.indexOf('/', scheme + 3);
+		if (pathStart < 0)
+			return "/";
+
+		return ID_SEGMENT.matcher(path.substring(pathStart)).replaceAll("/{id}");
+	}
+}
@@ -0,0 +1,29 @@
+package com.ecommerce.orderservice.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Logback filter that lets through only a share of the events below WARN,
+ * configured as {@code rate} between 0 and 1. Warnings and errors always pass.
+ */
+public class SamplingLogFilter extends Filter<ILoggingEvent> {
+
+	private double rate = 1.0;
+
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+
+	@Override
+	public FilterReply decide(ILoggingEvent event) {
+		if (event.getLevel().isGreaterOrEqual(Level.WARN))
+			return FilterReply.NEUTRAL;
+
+		return (ThreadLocalRandom.current().nextDouble() < rate) ? FilterReply.NEUTRAL : FilterReply.DENY;
+	}
+}
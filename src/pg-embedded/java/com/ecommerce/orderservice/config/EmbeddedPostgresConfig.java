@@ -0,0 +1,47 @@
+package com.ecommerce.orderservice.config;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * Runs PostgreSQL as a child process for the pg-embedded profile, so that the
+ * service can be run and benchmarked against a real PostgreSQL without Docker
+ * or a database server. The pool still takes the spring.datasource.hikari
+ * settings. Built only by the pg-embedded and jmh Maven profiles, so the
+ * PostgreSQL binaries stay out of the default artifact.
+ */
+@Configuration
+@Profile("pg-embedded")
+public class EmbeddedPostgresConfig {
+
+	private static final String USER = "postgres";
+
+	@Value("${persistence.pg-embedded.data-directory:}")
+	private String dataDirectory;
+
+	@Bean(destroyMethod = "close")
+	public EmbeddedPostgres embeddedPostgres() throws IOException {
+		EmbeddedPostgres.Builder builder = EmbeddedPostgres.builder();
+		if (!dataDirectory.isEmpty())
+			builder.setDataDirectory(new File(dataDirectory)).setCleanDataDirectory(false);
+		return builder.start();
+	}
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+		return DataSourceBuilder.create().type(HikariDataSource.class).driverClassName("org.postgresql.Driver")
+				.url(embeddedPostgres.getJdbcUrl(USER, USER)).username(USER).build();
+	}
+}
@@ -0,0 +1,53 @@
+package com.ecommerce.orderservice.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.OrderStatus;
+
+/**
+ * The mapping measured by the mapper benchmark must keep every field of the
+ * order and its items.
+ */
+class OrderMapperTests {
+
+	private final OrderMapper mapper = new OrderMapper(new ItemMapper());
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 500 })
+	void orderSurvivesMappingToEntityAndBack(int itemCount) {
+		OrderDto orderDto = order(itemCount);
+
+		Order order = mapper.toEntity(orderDto);
+
+		assertEquals(itemCount, order.getItemCount());
+		assertEquals(orderDto, mapper.toDto(order));
+	}
+
+	@Test
+	void nullMapsToNull() {
+		assertNull(mapper.toDto(null));
+		assertNull(mapper.toEntity(null));
+	}
+
+	private static OrderDto order(int itemCount) {
+		List<ItemDto> items = new ArrayList<>(itemCount);
+		for (long i = 1; i <= itemCount; i++)
+			items.add(new ItemDto(i, 2, new BigDecimal("200.00"), i, 100 + i));
+
+		return new OrderDto(7L, LocalDate.of(2023, 10, 5), OrderStatus.PROCESSING, new BigDecimal("450.00"), items,
+				3L);
+	}
+}
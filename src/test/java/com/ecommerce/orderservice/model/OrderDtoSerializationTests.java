@@ -0,0 +1,56 @@
+package com.ecommerce.orderservice.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Orders written as JSON or XML, with the mappers configured like the
+ * serialization benchmark, must read back unchanged.
+ */
+class OrderDtoSerializationTests {
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 500 })
+	void orderSurvivesJson(int itemCount) throws Exception {
+		ObjectMapper jsonMapper = configure(new ObjectMapper());
+		OrderDto orderDto = order(itemCount);
+
+		assertEquals(orderDto, jsonMapper.readValue(jsonMapper.writeValueAsBytes(orderDto), OrderDto.class));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 500 })
+	void orderSurvivesXml(int itemCount) throws Exception {
+		ObjectMapper xmlMapper = configure(new XmlMapper());
+		OrderDto orderDto = order(itemCount);
+
+		assertEquals(orderDto, xmlMapper.readValue(xmlMapper.writeValueAsBytes(orderDto), OrderDto.class));
+	}
+
+	private static ObjectMapper configure(ObjectMapper mapper) {
+		mapper.registerModule(new JavaTimeModule());
+		mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		return mapper;
+	}
+
+	private static OrderDto order(int itemCount) {
+		List<ItemDto> items = new ArrayList<>(itemCount);
+		for (long i = 1; i <= itemCount; i++)
+			items.add(new ItemDto(i, 2, new BigDecimal("200.00"), i, 100 + i));
+
+		return new OrderDto(7L, LocalDate.of(2023, 10, 5), OrderStatus.PROCESSING, new BigDecimal("450.00"), items,
+				3L);
+	}
+}
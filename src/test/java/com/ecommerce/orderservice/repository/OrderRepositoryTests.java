@@ -0,0 +1,139 @@
+package com.ecommerce.orderservice.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import com.ecommerce.orderservice.entity.Item;
+import com.ecommerce.orderservice.entity.Order;
+import com.ecommerce.orderservice.mapper.ItemMapper;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.model.OrderSummaryDto;
+
+/**
+ * Reads of 10k orders must take a fixed number of SQL statements, however many
+ * orders and items they return. Mapping to DTOs is included, since that is
+ * where lazy items used to be loaded one order at a time.
+ */
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=WARN",
+		"logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN" })
+class OrderRepositoryTests {
+
+	private static final int ORDERS = 10000;
+
+	private static final int ITEMS_PER_ORDER = 2;
+
+	private static final int USERS = 100;
+
+	private static final int PAGE_SIZE = 50;
+
+	private static final int EXPORT_CHUNK_SIZE = 500;
+
+	private final OrderMapper mapper = new OrderMapper(new ItemMapper());
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void seedOrders() {
+		List<Order> orders = new ArrayList<>(ORDERS);
+		for (int i = 0; i < ORDERS; i++) {
+			List<Item> items = new ArrayList<>(ITEMS_PER_ORDER);
+			for (long product = 1; product <= ITEMS_PER_ORDER; product++)
+				items.add(new Item(null, 1, BigDecimal.TEN, product, product));
+			orders.add(new Order(null, LocalDate.of(2023, 1, 1).plusDays(i % 365), OrderStatus.PROCESSING,
+					BigDecimal.TEN, items, (long) (i % USERS) + 1));
+		}
+		orderRepository.saveAll(orders);
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void exportReadsEveryOrderInOneStatementPerChunk() {
+		List<OrderDto> orders = new ArrayList<>();
+		try (Stream<Long> ids = orderRepository.streamIds(null, null, null, null)) {
+			List<Long> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+			for (Iterator<Long> iterator = ids.iterator(); iterator.hasNext();) {
+				chunk.add(iterator.next());
+				if (chunk.size() == EXPORT_CHUNK_SIZE || !iterator.hasNext()) {
+					orderRepository.findAllWithItemsByIdIn(chunk).forEach(order -> orders.add(mapper.toDto(order)));
+					chunk.clear();
+				}
+			}
+		}
+
+		assertEquals(ORDERS, orders.size());
+		assertEquals(ORDERS * ITEMS_PER_ORDER, orders.stream().mapToInt(order -> order.getItems().size()).sum());
+		assertEquals(1 + ORDERS / EXPORT_CHUNK_SIZE, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void streamIdsAppliesOnlyTheGivenFilters() {
+		try (Stream<Long> ids = orderRepository.streamIds(1L, OrderStatus.PROCESSING, null, null)) {
+			assertEquals(ORDERS / USERS, ids.count());
+		}
+	}
+
+	@Test
+	void findWithItemsByIdReadsOneOrderInOneStatement() {
+		Long id = orderRepository.findSummariesAfter(0L, PageRequest.of(0, 1)).get(0).getId();
+		statistics.clear();
+
+		OrderDto order = mapper.toDto(orderRepository.findWithItemsById(id).get());
+
+		assertEquals(ITEMS_PER_ORDER, order.getItems().size());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void summaryPagesReadNoItems() {
+		List<OrderSummaryDto> firstPage = orderRepository.findSummariesAfter(0L, PageRequest.of(0, PAGE_SIZE));
+		List<OrderSummaryDto> secondPage = orderRepository
+				.findSummariesAfter(firstPage.get(PAGE_SIZE - 1).getId(), PageRequest.of(0, PAGE_SIZE));
+
+		assertEquals(PAGE_SIZE, firstPage.size());
+		assertEquals(PAGE_SIZE, secondPage.size());
+		assertTrue(secondPage.get(0).getId() > firstPage.get(PAGE_SIZE - 1).getId());
+		assertEquals(ITEMS_PER_ORDER, firstPage.get(0).getItemCount());
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(0, statistics.getEntityLoadCount());
+	}
+
+	@Test
+	void pageOfOrdersWithItemsTakesTwoStatements() {
+		List<Long> ids = orderRepository.findPageIds(0L, 1L, null, null, null, PageRequest.of(0, PAGE_SIZE));
+		List<OrderDto> orders = new ArrayList<>();
+		orderRepository.findAllWithItemsByIdIn(ids).forEach(order -> orders.add(mapper.toDto(order)));
+
+		assertEquals(PAGE_SIZE, orders.size());
+		assertEquals(2, statistics.getPrepareStatementCount());
+	}
+}
@@ -0,0 +1,81 @@
+package com.ecommerce.orderservice.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import com.ecommerce.orderservice.entity.OutboxEvent;
+import com.ecommerce.orderservice.model.OutboxStatus;
+
+/**
+ * An order is claimed by one dispatcher only, and abandoned claims are handed
+ * back once they time out.
+ */
+@DataJpaTest(properties = { "spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=WARN" })
+class OutboxEventRepositoryTests {
+
+	private static final long ORDER_ID = 1;
+
+	@Autowired
+	private OutboxEventRepository outboxEventRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Test
+	void onlyTheFirstClaimTakesTheEvents() {
+		LocalDateTime now = LocalDateTime.now();
+		saveEvents(null);
+
+		assertEquals(2, claim(now));
+		assertEquals(0, claim(now));
+		assertEquals(2, outboxEventRepository.findByOrderIdAndStatusOrderById(ORDER_ID, OutboxStatus.IN_PROGRESS)
+				.size());
+	}
+
+	@Test
+	void claimSkipsEventsWaitingOutABackoff() {
+		LocalDateTime now = LocalDateTime.now();
+		saveEvents(now.plusMinutes(1));
+
+		assertEquals(0, claim(now));
+		assertEquals(2, claim(now.plusMinutes(2)));
+	}
+
+	@Test
+	void staleClaimsCanBeClaimedAgain() {
+		LocalDateTime claimedAt = LocalDateTime.now();
+		saveEvents(null);
+		claim(claimedAt);
+
+		assertEquals(0, outboxEventRepository.releaseStaleClaims(OutboxStatus.IN_PROGRESS, OutboxStatus.PENDING,
+				claimedAt.minusMinutes(1)));
+		assertEquals(2, outboxEventRepository.releaseStaleClaims(OutboxStatus.IN_PROGRESS, OutboxStatus.PENDING,
+				claimedAt.plusMinutes(1)));
+		assertEquals(2, claim(claimedAt.plusMinutes(1)));
+	}
+
+	private void saveEvents(LocalDateTime nextAttemptAt) {
+		LocalDateTime createdAt = LocalDateTime.now();
+		outboxEventRepository.saveAll(List.of(
+				new OutboxEvent(null, ORDER_ID, 1L, 1L, null, 1, OutboxStatus.PENDING, 0, createdAt, nextAttemptAt,
+						null, null),
+				new OutboxEvent(null, ORDER_ID, 2L, 2L, null, 1, OutboxStatus.PENDING, 0, createdAt, nextAttemptAt,
+						null, null)));
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	private int claim(LocalDateTime now) {
+		int claimed = outboxEventRepository.claim(ORDER_ID, OutboxStatus.PENDING, OutboxStatus.IN_PROGRESS, now);
+		entityManager.clear();
+		return claimed;
+	}
+}
@@ -0,0 +1,79 @@
+package com.ecommerce.orderservice.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.ecommerce.orderservice.exception.EcommerceException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Followers share the leader's call, but never wait past their own deadline.
+ */
+class SingleFlightTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final SingleFlight<String, String> flight = new SingleFlight<>("test", meterRegistry);
+
+	private final CountDownLatch leaderStarted = new CountDownLatch(1);
+
+	private final CountDownLatch releaseLeader = new CountDownLatch(1);
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@AfterEach
+	void releaseLeader() {
+		releaseLeader.countDown();
+	}
+
+	@Test
+	void followerSharesTheLeadersResult() throws Exception {
+		CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.execute("key", this::slowCall));
+		leaderStarted.await(5, TimeUnit.SECONDS);
+
+		CompletableFuture<String> follower = CompletableFuture
+				.supplyAsync(() -> flight.execute("key", this::slowCall));
+		// The leader is only let go once the follower waits for it
+		while (meterRegistry.get("proxy.singleflight.collapsed").counter().count() < 1)
+			Thread.sleep(1);
+		releaseLeader.countDown();
+
+		assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+		assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void followerGivesUpAtItsDeadline() throws Exception {
+		CompletableFuture.runAsync(() -> flight.execute("key", this::slowCall));
+		leaderStarted.await(5, TimeUnit.SECONDS);
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+		EcommerceException e = assertThrows(EcommerceException.class,
+				() -> RequestDeadline.callWith(deadline, () -> flight.execute("key", this::slowCall)));
+
+		assertEquals(HttpStatus.GATEWAY_TIMEOUT, e.getHttpStatus());
+		assertEquals(1, calls.get());
+	}
+
+	private String slowCall() {
+		calls.incrementAndGet();
+		leaderStarted.countDown();
+		try {
+			releaseLeader.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return "result";
+	}
+}
@@ -0,0 +1,137 @@
+package com.ecommerce.orderservice.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.repository.OrderRepository;
+import com.ecommerce.orderservice.service.OrderService;
+
+/**
+ * Flash sale on one product: many more concurrent orders than units in stock.
+ * Half of the orders are pinned to the only inventory of the product, the
+ * other half let the inventory service pick it. Whatever the outcome of each
+ * order, no more units may be reserved than there were, and every unit taken
+ * must belong to a saved order.
+ *
+ * Every subclass gets its own context, pointed at its own stubs, since the
+ * proxies remember which endpoints the inventory service lacks.
+ */
+@SpringBootTest(properties = { "spring.zipkin.enabled=false", "spring.jpa.show-sql=false",
+		"order.create.mode=sync" })
+@ActiveProfiles("h2mem")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+abstract class AbstractStockContentionTests {
+
+	private static final long PRODUCT_ID = 1;
+
+	// The stub gives every product one inventory with the same id
+	private static final long INVENTORY_ID = PRODUCT_ID;
+
+	private static final int STOCK = 50;
+
+	private static final int ORDERS = 200;
+
+	private static StubDownstreamServices stubServices;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	/**
+	 * Whether the stub inventory service offers the reservation endpoints. Without
+	 * them the proxy falls back to conditional updates with ETags.
+	 */
+	abstract boolean reservationEndpoints();
+
+	// Runs before the context of each subclass is created, so the stubs are
+	// started here and set up for the subclass once it exists
+	@DynamicPropertySource
+	static void startStubServices(DynamicPropertyRegistry registry) throws Exception {
+		stubServices = new StubDownstreamServices(2, true).addProduct(PRODUCT_ID, STOCK).start();
+		stubServices.registerUrls(registry);
+	}
+
+	@BeforeAll
+	void configureStubServices() {
+		stubServices.reservationEndpoints(reservationEndpoints());
+	}
+
+	@AfterAll
+	void stopStubServices() {
+		stubServices.close();
+	}
+
+	@Test
+	void concurrentOrdersNeverReserveMoreThanTheStock() throws Exception {
+		long ordersBefore = orderRepository.count();
+
+		ExecutorService clients = Executors.newFixedThreadPool(ORDERS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<OrderDto>> creates = new ArrayList<>();
+		try {
+			for (int i = 0; i < ORDERS; i++) {
+				OrderDto order = order((i % 2 == 0) ? INVENTORY_ID : null);
+				creates.add(clients.submit(() -> {
+					start.await();
+					return orderService.createOrder(order);
+				}));
+			}
+			start.countDown();
+
+			int created = 0;
+			for (Future<OrderDto> create : creates) {
+				try {
+					create.get(60, TimeUnit.SECONDS);
+					created++;
+				} catch (ExecutionException e) {
+					if (!(e.getCause() instanceof EcommerceException))
+						throw e;
+				}
+			}
+
+			int reserved = STOCK - stubServices.stockOf(PRODUCT_ID);
+			assertTrue(reserved <= STOCK, reserved + " units were reserved out of " + STOCK);
+			assertEquals(created, reserved, "Units reserved do not match the orders created");
+			assertEquals(created, orderRepository.count() - ordersBefore);
+			assertTrue(created > 0, "No order was created");
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	private static OrderDto order(Long inventoryId) {
+		ItemDto item = new ItemDto(null, 1, BigDecimal.TEN, PRODUCT_ID, inventoryId);
+		return new OrderDto(null, LocalDate.now(), OrderStatus.PROCESSING, BigDecimal.TEN,
+				new ArrayList<>(Collections.singletonList(item)), 1L);
+	}
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.orderservice.service.impl;
+
+/**
+ * Stock taken with GET and If-Match PUT, for inventory services without the
+ * reserve endpoint.
+ */
+class ConditionalUpdateStockTests extends AbstractStockContentionTests {
+
+	@Override
+	boolean reservationEndpoints() {
+		return false;
+	}
+}
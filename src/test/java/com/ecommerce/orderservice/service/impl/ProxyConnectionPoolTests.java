@@ -0,0 +1,154 @@
+package com.ecommerce.orderservice.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.OrderStatus;
+import com.ecommerce.orderservice.service.OrderService;
+
+/**
+ * 200 concurrent order creates against stub product and inventory services,
+ * twice. Every create makes at least one reservation call, so the inventory
+ * service sees far more requests than the pool may open connections. The second
+ * round finds the connections of the first kept alive and reuses them.
+ */
+@SpringBootTest(properties = { "spring.zipkin.enabled=false", "spring.jpa.show-sql=false",
+		"order.create.mode=sync" })
+@ActiveProfiles("h2mem")
+class ProxyConnectionPoolTests {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProxyConnectionPoolTests.class);
+
+	private static final int ORDERS = 200;
+
+	private static final int PRODUCTS = 20;
+
+	private static final int STOCK_PER_PRODUCT = 1000;
+
+	private static final long STUB_LATENCY_MS = 5;
+
+	// Far above the stub latency, but below what creates would take if they
+	// queued for connections or paid for a handshake each
+	private static final double MAX_WARM_P99_MS = 1000;
+
+	private static StubDownstreamServices stubServices;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private PoolingHttpClientConnectionManager proxyConnectionManager;
+
+	@Value("${proxy.http.max-connections-per-host}")
+	private int maxConnectionsPerHost;
+
+	@DynamicPropertySource
+	static void startStubServices(DynamicPropertyRegistry registry) throws Exception {
+		stubServices = new StubDownstreamServices(STUB_LATENCY_MS, true);
+		for (long productId = 1; productId <= PRODUCTS; productId++)
+			stubServices.addProduct(productId, STOCK_PER_PRODUCT);
+		stubServices.start().registerUrls(registry);
+	}
+
+	@AfterAll
+	static void stopStubServices() {
+		stubServices.close();
+	}
+
+	@Test
+	void concurrentCreatesReuseKeepAliveConnections() throws Exception {
+		List<Long> coldLatencies = createConcurrently();
+		int coldConnections = stubServices.connectionCount("inventory");
+		int coldRequests = stubServices.requestCount("inventory");
+
+		List<Long> warmLatencies = createConcurrently();
+
+		int reserved = 0;
+		for (long productId = 1; productId <= PRODUCTS; productId++)
+			reserved += STOCK_PER_PRODUCT - stubServices.stockOf(productId);
+		assertEquals(2 * ORDERS, reserved);
+
+		int connections = stubServices.connectionCount("inventory");
+		int requests = stubServices.requestCount("inventory");
+		int warmConnectionsOpened = connections - coldConnections;
+		int warmRequests = requests - coldRequests;
+		double warmP99 = percentile(warmLatencies, 0.99);
+		LOGGER.info("Inventory service: {} requests over {} connections, {} opened for {} requests of the warm round,"
+				+ " p99 cold: {} ms, warm: {} ms", requests, connections, warmConnectionsOpened, warmRequests,
+				percentile(coldLatencies, 0.99), warmP99);
+
+		assertTrue(connections <= maxConnectionsPerHost,
+				"The pool opened " + connections + " connections to one host, above its limit");
+		assertTrue(requests >= 4 * connections,
+				"Only " + requests + " requests were sent over " + connections + " connections");
+		assertTrue(warmConnectionsOpened * 4 <= warmRequests, "The warm round opened " + warmConnectionsOpened
+				+ " connections for " + warmRequests + " requests instead of reusing the kept-alive ones");
+		assertEquals(0, proxyConnectionManager.getTotalStats().getLeased(), "Connections were not returned to the pool");
+		assertTrue(proxyConnectionManager.getTotalStats().getAvailable() > 0,
+				"No connection was kept alive for reuse");
+		assertTrue(warmP99 <= MAX_WARM_P99_MS, "p99 of the warm round was " + warmP99 + " ms");
+	}
+
+	private List<Long> createConcurrently() throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(ORDERS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Long>> creates = new ArrayList<>();
+			for (int i = 0; i < ORDERS; i++) {
+				OrderDto order = order((i % PRODUCTS) + 1L);
+				creates.add(clients.submit(() -> {
+					start.await();
+					long begin = System.nanoTime();
+					orderService.createOrder(order);
+					return System.nanoTime() - begin;
+				}));
+			}
+			start.countDown();
+
+			List<Long> latencies = new ArrayList<>();
+			for (Future<Long> create : creates)
+				latencies.add(create.get(60, TimeUnit.SECONDS));
+			return latencies;
+		} finally {
+			clients.shutdownNow();
+		}
+	}
+
+	private static OrderDto order(long productId) {
+		ItemDto item = new ItemDto(null, 1, BigDecimal.TEN, productId, null);
+		return new OrderDto(null, LocalDate.now(), OrderStatus.PROCESSING, BigDecimal.TEN,
+				new ArrayList<>(Collections.singletonList(item)), 1L);
+	}
+
+	private static double percentile(List<Long> latencies, double percentile) {
+		List<Long> sorted = new ArrayList<>(latencies);
+		Collections.sort(sorted);
+		int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+		return sorted.get(Math.max(0, index)) / 1_000_000.0;
+	}
+}
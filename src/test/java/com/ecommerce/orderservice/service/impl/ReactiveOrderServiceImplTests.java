@@ -0,0 +1,90 @@
+package com.ecommerce.orderservice.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ecommerce.orderservice.mapper.ItemMapper;
+import com.ecommerce.orderservice.mapper.OrderMapper;
+import com.ecommerce.orderservice.model.InventoryDto;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.OrderDto;
+import com.ecommerce.orderservice.model.ProductDto;
+import com.ecommerce.orderservice.repository.OrderRepository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Stock reserved for an order must not stay taken when the order cannot be
+ * saved.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReactiveOrderServiceImplTests {
+
+	private static final long PRODUCT_ID = 1;
+
+	private static final long INVENTORY_ID = 10;
+
+	private static final int QUANTITY = 3;
+
+	@Mock
+	private OrderRepository orderRepository;
+
+	@Mock
+	private ReactiveProductServiceProxy productServiceProxy;
+
+	@Mock
+	private ReactiveInventoryServiceProxy inventoryServiceProxy;
+
+	@Spy
+	private OrderMapper mapper = new OrderMapper(new ItemMapper());
+
+	@InjectMocks
+	private ReactiveOrderServiceImpl orderService;
+
+	@BeforeEach
+	void stubDownstreamServices() {
+		ReflectionTestUtils.setField(orderService, "concurrency", 16);
+
+		InventoryDto inventory = new InventoryDto(INVENTORY_ID, "SKU-1", PRODUCT_ID, "vendor", 50, BigDecimal.ONE);
+		when(productServiceProxy.getProductsByIds(anyCollection())).thenReturn(Mono.just(Map.of(PRODUCT_ID,
+				new ProductDto(PRODUCT_ID, "P-1", "Product", BigDecimal.TEN, null, "category"))));
+		when(inventoryServiceProxy.getInventoryByProductIds(anyCollection()))
+				.thenReturn(Mono.just(Map.of(PRODUCT_ID, List.of(inventory))));
+		when(inventoryServiceProxy.reserveInventory(INVENTORY_ID, QUANTITY)).thenReturn(Mono.just(inventory));
+		when(inventoryServiceProxy.releaseInventory(INVENTORY_ID, QUANTITY)).thenReturn(Mono.just(inventory));
+	}
+
+	@Test
+	void createOrderReleasesTheReservationsWhenTheSaveFails() {
+		DataAccessResourceFailureException saveFailure = new DataAccessResourceFailureException("Database is down");
+		when(orderRepository.save(any())).thenThrow(saveFailure);
+
+		OrderDto order = new OrderDto(null, LocalDate.now(), null, BigDecimal.TEN,
+				List.of(new ItemDto(null, QUANTITY, BigDecimal.TEN, PRODUCT_ID, INVENTORY_ID)), 1L);
+
+		RuntimeException failure = assertThrows(RuntimeException.class,
+				() -> orderService.createOrder(order).block());
+
+		assertSame(saveFailure, failure);
+		verify(inventoryServiceProxy).releaseInventory(INVENTORY_ID, QUANTITY);
+	}
+}
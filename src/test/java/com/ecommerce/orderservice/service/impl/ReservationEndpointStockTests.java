@@ -0,0 +1,12 @@
+package com.ecommerce.orderservice.service.impl;
+
+/**
+ * Stock taken with the reserve endpoint of the inventory service.
+ */
+class ReservationEndpointStockTests extends AbstractStockContentionTests {
+
+	@Override
+	boolean reservationEndpoints() {
+		return true;
+	}
+}
@@ -0,0 +1,68 @@
+package com.ecommerce.orderservice.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ecommerce.orderservice.exception.EcommerceException;
+import com.ecommerce.orderservice.model.InventoryDto;
+import com.ecommerce.orderservice.model.ItemDto;
+import com.ecommerce.orderservice.model.ProductDto;
+
+/**
+ * The stock rules run by the stock check benchmark.
+ */
+class StockAvailabilityTests {
+
+	private final ItemDto item = new ItemDto(null, 5, BigDecimal.TEN, 1L, null);
+
+	@Test
+	void totalStockSkipsInventoriesWithoutStock() {
+		List<InventoryDto> inventories = List.of(inventory(1L, 3), inventory(2L, null), inventory(3L, 4));
+
+		assertEquals(7, StockAvailability.totalStock(inventories));
+	}
+
+	@Test
+	void checkStockAcceptsEnoughUnits() {
+		assertDoesNotThrow(() -> StockAvailability.checkStock(item, 5));
+	}
+
+	@Test
+	void checkStockRejectsTooFewUnits() {
+		EcommerceException noStock = assertThrows(EcommerceException.class,
+				() -> StockAvailability.checkStock(item, 0));
+		EcommerceException tooFew = assertThrows(EcommerceException.class,
+				() -> StockAvailability.checkStock(item, 4));
+
+		assertEquals("product-not-available", noStock.getErrorCode());
+		assertEquals("product-not-available", tooFew.getErrorCode());
+	}
+
+	@Test
+	void checkProductFoundRejectsMissingProduct() {
+		EcommerceException e = assertThrows(EcommerceException.class,
+				() -> StockAvailability.checkProductFound(item, null));
+
+		assertEquals("product-not-found", e.getErrorCode());
+		assertDoesNotThrow(() -> StockAvailability.checkProductFound(item,
+				new ProductDto(1L, "P-1", "Product 1", BigDecimal.TEN, null, "Stub")));
+	}
+
+	@Test
+	void findPinnedInventoryMatchesById() {
+		ItemDto pinned = new ItemDto(null, 1, BigDecimal.TEN, 1L, 2L);
+
+		assertEquals(2L, StockAvailability.findPinnedInventory(pinned, List.of(inventory(1L, 3), inventory(2L, 4)))
+				.get().getId());
+	}
+
+	private static InventoryDto inventory(Long id, Integer stock) {
+		return new InventoryDto(id, "SKU-" + id, 1L, "Vendor", stock, BigDecimal.TEN);
+	}
+}
@@ -0,0 +1,302 @@
+package com.ecommerce.orderservice.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import com.ecommerce.orderservice.model.InventoryDto;
+import com.ecommerce.orderservice.model.InventoryReservationDto;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import com.ecommerce.orderservice.model.ProductDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Product and inventory services on ephemeral ports, see
+ * {@link #registerUrls(DynamicPropertyRegistry)}. Every product
+ * has one inventory with the same id. Stock changes are atomic per inventory,
+ * like the reservation endpoints of the real inventory service, and every
+ * inventory carries a version that is sent as its ETag and checked against
+ * If-Match on updates. The stubs count the requests and the connections they
+ * receive.
+ */
+class StubDownstreamServices implements AutoCloseable {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final Map<Long, StubInventory> inventories = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<InetSocketAddress>> connections = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+	private final long latencyMs;
+
+	private volatile boolean reservationEndpoints;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	private final Map<String, HttpServer> servers = new ConcurrentHashMap<>();
+
+	/**
+	 * @param latencyMs            time every request takes on the server
+	 * @param reservationEndpoints whether the inventory service offers the
+	 *                             reserve and release endpoints, or only GET and
+	 *                             PUT with ETags
+	 */
+	StubDownstreamServices(long latencyMs, boolean reservationEndpoints) {
+		this.latencyMs = latencyMs;
+		this.reservationEndpoints = reservationEndpoints;
+	}
+
+	StubDownstreamServices reservationEndpoints(boolean reservationEndpoints) {
+		this.reservationEndpoints = reservationEndpoints;
+		return this;
+	}
+
+	StubDownstreamServices addProduct(long productId, int stock) {
+		inventories.put(productId, new StubInventory(productId, stock));
+		return this;
+	}
+
+	int stockOf(long productId) {
+		return inventories.get(productId).stock();
+	}
+
+	int connectionCount(String service) {
+		return connections.getOrDefault(service, Collections.emptySet()).size();
+	}
+
+	int requestCount(String service) {
+		return requests.getOrDefault(service, new AtomicInteger()).get();
+	}
+
+	StubDownstreamServices start() throws IOException {
+		servers.put("product", server("product", "/api/products/", this::handleProduct));
+		servers.put("inventory", server("inventory", "/api/inventory/", this::handleInventory));
+		return this;
+	}
+
+	/**
+	 * Points the proxies of the application context at the started stubs.
+	 */
+	void registerUrls(DynamicPropertyRegistry registry) {
+		registry.add("proxy.product-service.url", () -> urlOf("product", "/api/products/"));
+		registry.add("proxy.inventory-service.url", () -> urlOf("inventory", "/api/inventory/"));
+	}
+
+	private String urlOf(String service, String context) {
+		return "http://localhost:" + servers.get(service).getAddress().getPort() + context;
+	}
+
+	@Override
+	public void close() {
+		servers.values().forEach(server -> server.stop(0));
+		executor.shutdownNow();
+	}
+
+	private HttpServer server(String service, String context, StubHandler handler) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(0), 512);
+		server.createContext(context, exchange -> {
+			try {
+				connections.computeIfAbsent(service, key -> ConcurrentHashMap.newKeySet())
+						.add(exchange.getRemoteAddress());
+				requests.computeIfAbsent(service, key -> new AtomicInteger()).incrementAndGet();
+
+				byte[] requestBody;
+				try (InputStream body = exchange.getRequestBody()) {
+					requestBody = body.readAllBytes();
+				}
+				if (latencyMs > 0)
+					Thread.sleep(latencyMs);
+
+				handler.handle(exchange, requestBody);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				exchange.close();
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+		return server;
+	}
+
+	private void handleProduct(HttpExchange exchange, byte[] requestBody) throws IOException {
+		String path = exchange.getRequestURI().getPath().substring("/api/products/".length());
+
+		if (path.equals("batch")) {
+			List<ProductDto> products = idsOf(exchange, "ids").stream().filter(inventories::containsKey)
+					.map(StubDownstreamServices::product).collect(Collectors.toList());
+			respond(exchange, 200, products, null);
+			return;
+		}
+
+		long productId = Long.parseLong(path);
+		if (inventories.containsKey(productId))
+			respond(exchange, 200, product(productId), null);
+		else
+			respond(exchange, 404, null, null);
+	}
+
+	private void handleInventory(HttpExchange exchange, byte[] requestBody) throws IOException {
+		String method = exchange.getRequestMethod();
+		String[] path = exchange.getRequestURI().getPath().substring("/api/inventory/".length()).split("/");
+
+		if (path[0].equals("product")) {
+			if (path[1].equals("batch")) {
+				List<InventoryDto> found = idsOf(exchange, "productIds").stream().map(inventories::get)
+						.filter(inventory -> inventory != null).map(StubInventory::toDto).collect(Collectors.toList());
+				respond(exchange, 200, found, null);
+			} else if (path.length == 2) {
+				StubInventory inventory = inventories.get(Long.parseLong(path[1]));
+				respond(exchange, 200, (inventory == null) ? Collections.emptyList()
+						: Collections.singletonList(inventory.toDto()), null);
+			} else {
+				reserve(exchange, inventories.get(Long.parseLong(path[1])), requestBody, -1);
+			}
+			return;
+		}
+
+		// No batch adjustment endpoint, the proxy falls back to single requests
+		if (path[0].equals("adjust")) {
+			respond(exchange, 404, null, null);
+			return;
+		}
+
+		StubInventory inventory = inventories.get(Long.parseLong(path[0]));
+		if (path.length == 2) {
+			reserve(exchange, inventory, requestBody, path[1].equals("reserve") ? -1 : 1);
+		} else if (inventory == null) {
+			respond(exchange, 404, null, null);
+		} else if (method.equals("GET")) {
+			InventoryDto current;
+			String etag;
+			synchronized (inventory) {
+				current = inventory.toDto();
+				etag = inventory.etag();
+			}
+			respond(exchange, 200, current, etag);
+		} else if (method.equals("PUT")) {
+			InventoryDto update = objectMapper.readValue(requestBody, InventoryDto.class);
+			String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+			InventoryDto updated;
+			String etag;
+			synchronized (inventory) {
+				updated = inventory.replace(ifMatch, update.getVendorInventory());
+				etag = inventory.etag();
+			}
+			respond(exchange, (updated == null) ? 412 : 200, updated, (updated == null) ? null : etag);
+		} else {
+			respond(exchange, 405, null, null);
+		}
+	}
+
+	private void reserve(HttpExchange exchange, StubInventory inventory, byte[] requestBody, int sign)
+			throws IOException {
+		if (!reservationEndpoints || inventory == null) {
+			respond(exchange, 404, null, null);
+			return;
+		}
+
+		int quantity = objectMapper.readValue(requestBody, InventoryReservationDto.class).getQuantity();
+		InventoryDto updated = inventory.adjust(sign * quantity);
+		respond(exchange, (updated == null) ? 409 : 200, updated, null);
+	}
+
+	private void respond(HttpExchange exchange, int status, Object body, String etag) throws IOException {
+		if (etag != null)
+			exchange.getResponseHeaders().set("ETag", etag);
+
+		if (body == null) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+
+		byte[] json = objectMapper.writeValueAsBytes(body);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, json.length);
+		exchange.getResponseBody().write(json);
+	}
+
+	private static List<Long> idsOf(HttpExchange exchange, String parameter) {
+		String query = exchange.getRequestURI().getQuery();
+		String prefix = parameter + "=";
+		return Arrays.stream(query.split("&")).filter(pair -> pair.startsWith(prefix))
+				.flatMap(pair -> Arrays.stream(pair.substring(prefix.length()).split(","))).map(Long::valueOf)
+				.collect(Collectors.toList());
+	}
+
+	private static ProductDto product(long productId) {
+		return new ProductDto(productId, "P-" + productId, "Product " + productId, BigDecimal.TEN, null, "Stub");
+	}
+
+	@FunctionalInterface
+	private interface StubHandler {
+
+		void handle(HttpExchange exchange, byte[] requestBody) throws IOException;
+	}
+
+	private static final class StubInventory {
+
+		private final long id;
+
+		private int stock;
+
+		private int version;
+
+		private StubInventory(long id, int stock) {
+			this.id = id;
+			this.stock = stock;
+		}
+
+		synchronized int stock() {
+			return stock;
+		}
+
+		synchronized InventoryDto toDto() {
+			return new InventoryDto(id, "SKU-" + id, id, "Stub vendor", stock, BigDecimal.TEN);
+		}
+
+		synchronized String etag() {
+			return "\"" + version + "\"";
+		}
+
+		/**
+		 * Conditional decrement or increment, null when it would take the stock below
+		 * zero.
+		 */
+		synchronized InventoryDto adjust(int delta) {
+			if (stock + delta < 0)
+				return null;
+			stock += delta;
+			version++;
+			return toDto();
+		}
+
+		/**
+		 * Write of the whole inventory, null when the If-Match does not name the
+		 * current version.
+		 */
+		synchronized InventoryDto replace(String ifMatch, int newStock) {
+			if (ifMatch != null && !ifMatch.equals(etag()))
+				return null;
+			stock = newStock;
+			version++;
+			return toDto();
+		}
+	}
+}
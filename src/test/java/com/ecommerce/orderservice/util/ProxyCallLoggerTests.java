@@ -0,0 +1,59 @@
+package com.ecommerce.orderservice.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ecommerce.orderservice.model.InventoryDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Logged bodies are cut to the maximum length, however large the payload.
+ */
+class ProxyCallLoggerTests {
+
+	private static final int MAX_BODY_CHARS = 64;
+
+	private final ProxyCallLogger logger = new ProxyCallLogger();
+
+	@BeforeEach
+	void configureLogger() {
+		ReflectionTestUtils.setField(logger, "maxBodyChars", MAX_BODY_CHARS);
+		ReflectionTestUtils.setField(logger, "objectMapper", new ObjectMapper());
+	}
+
+	@Test
+	void shortBodiesAreLoggedWhole() {
+		assertEquals("{\"id\":1}", logger.abbreviate("{\"id\":1}"));
+		assertEquals("{\"id\":1}", logger.abbreviate("{\"id\":1}".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	void longStringsAndBytesAreCut() {
+		String text = "x".repeat(1000);
+
+		assertEquals("x".repeat(MAX_BODY_CHARS) + "...(1000 chars)", logger.abbreviate(text));
+		assertEquals("x".repeat(MAX_BODY_CHARS) + "...(1000 bytes)",
+				logger.abbreviate(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	void largeObjectsAreSerializedOnlyUpToTheLimit() {
+		List<InventoryDto> inventories = new ArrayList<>();
+		for (long id = 1; id <= 10000; id++)
+			inventories.add(new InventoryDto(id, "SKU-" + id, id, "vendor", 10, BigDecimal.ONE));
+
+		String logged = logger.abbreviate(inventories);
+
+		assertTrue(logged.startsWith("[{\"id\":1,\"sku\":\"SKU-1\""), logged);
+		assertEquals(MAX_BODY_CHARS + "...(truncated)".length(), logged.length());
+	}
+}